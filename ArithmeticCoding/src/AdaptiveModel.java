@@ -0,0 +1,88 @@
+import java.util.Arrays;
+
+class AdaptiveModel {
+    AdaptiveModel(int symbols, int maxTotal) {
+        this.symbols = symbols;
+        this.maxTotal = maxTotal;
+        frequencies = new int[symbols];
+        tree = new int[symbols + 1];
+        reset();
+    }
+
+    void reset() {
+        Arrays.fill(frequencies, 1);
+        rebuild();
+    }
+
+    int total() {
+        return total;
+    }
+
+    int frequency(int symbol) {
+        return frequencies[symbol];
+    }
+
+    int cumFrequency(int symbol) {
+        int sum = 0;
+        for(int i = symbol; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    int findSymbol(int value) {
+        int position = 0;
+        int rest = value;
+        for(int step = Integer.highestOneBit(symbols); step > 0; step >>= 1) {
+            int next = position + step;
+            if(next <= symbols && tree[next] <= rest) {
+                position = next;
+                rest -= tree[next];
+            }
+        }
+        foundCumFrequency = value - rest;
+        return position;
+    }
+
+    int foundCumFrequency() {
+        return foundCumFrequency;
+    }
+
+    void update(int symbol) {
+        frequencies[symbol] += INCREMENT;
+        total += INCREMENT;
+        for(int i = symbol + 1; i <= symbols; i += i & -i) {
+            tree[i] += INCREMENT;
+        }
+        if(total > maxTotal - INCREMENT) {
+            rescale();
+        }
+    }
+
+    private void rescale() {
+        for(int i = 0; i < symbols; ++i) {
+            frequencies[i] = (frequencies[i] + 1) >> 1;
+        }
+        rebuild();
+    }
+
+    private void rebuild() {
+        Arrays.fill(tree, 0);
+        total = 0;
+        for(int i = 0; i < symbols; ++i) {
+            total += frequencies[i];
+            for(int j = i + 1; j <= symbols; j += j & -j) {
+                tree[j] += frequencies[i];
+            }
+        }
+    }
+
+    private static final int INCREMENT = 32;
+
+    private final int symbols;
+    private final int maxTotal;
+    private final int[] frequencies;
+    private final int[] tree;
+    private int total;
+    private int foundCumFrequency;
+}
@@ -2,13 +2,21 @@ import ru.spbstu.pipeline.*;
 
 import java.io.*;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.Checksum;
 
 public class ArithmeticCoding implements IExecutor {
     public ArithmeticCoding(Logger log) {
@@ -17,10 +25,26 @@ public class ArithmeticCoding implements IExecutor {
 
     @Override
     public RC execute() {
+        RC rc = process();
+        if(rc != RC.CODE_SUCCESS) {
+            stopWorkers();
+        }
+        return rc;
+    }
+
+    private RC process() {
         RC rc;
-        byte[] bytesData = handleData();
+        ByteBuffer input = handleData();
 
-        if(bytesData == null) {
+        if(input == null) {
+            if(workers != null) {
+                rc = emit(true);
+                stopWorkers();
+                if(rc != RC.CODE_SUCCESS) {
+                    logger.log(Level.SEVERE, "Error: ", rc);
+                    return rc;
+                }
+            }
             if(bufferedReader != null) {
                 try {
                     bufferedReader.close();
@@ -37,15 +61,73 @@ public class ArithmeticCoding implements IExecutor {
                     return RC.CODE_FAILED_TO_WRITE;
                 }
             }
+            if(cfgP.mode == CodingGrammarWords.RANGE_ENCODE && cfgP.framing == CodingGrammarWords.BLOCKS) {
+                rc = finishContainer();
+                if(rc != RC.CODE_SUCCESS) {
+                    logger.log(Level.SEVERE, "Error: ", rc);
+                    return rc;
+                }
+            }
+            if(cfgP.mode == CodingGrammarWords.RANGE_ENCODE && cfgP.framing == CodingGrammarWords.STREAM) {
+                rc = finishStream();
+                if(rc != RC.CODE_SUCCESS) {
+                    logger.log(Level.SEVERE, "Error: ", rc);
+                    return rc;
+                }
+            }
+            if(streamDecoder != null) {
+                try {
+                    rc = streamDecode(true);
+                } catch (RuntimeException e) {
+                    logger.log(Level.SEVERE, "Exception: ", e);
+                    rc = RC.CODE_FAILED_TO_READ;
+                }
+                if(rc != RC.CODE_SUCCESS) {
+                    logger.log(Level.SEVERE, "Error: ", rc);
+                    return rc;
+                }
+            }
+            if(pendingSize > 0 || blockChecksums != null && !indexRead) {
+                logger.log(Level.SEVERE, "Error: truncated coded stream");
+                return RC.CODE_FAILED_TO_READ;
+            }
+            pool.release(inputCopy);
+            pool.release(decoded);
+            pool.release(streamOutput);
+            inputCopy = decoded = streamOutput = null;
             bytes = null;
             return consumer.execute();
         }
 
+        byte[] data = input.array();
+        int offset = input.arrayOffset() + input.position();
+        int length = input.remaining();
+        if(workers == null && cfgP.workers > 1) {
+            workers = Executors.newFixedThreadPool(cfgP.workers, runnable -> {
+                Thread thread = new Thread(runnable, "coding-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        if(cfgP.mode == CodingGrammarWords.RANGE_DECODE) {
+            try {
+                return rangeDecode(data, offset, length);
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Exception: ", e);
+                return RC.CODE_FAILED_TO_READ;
+            }
+        }
+
         if(cfgP.mode == CodingGrammarWords.ENCODE) {
-            codingBytes = bytesData;
-            segments = setSegments(count(), codingBytes.length);
+            codingBytes = data;
+            codingOffset = offset;
+            codingLength = length;
+            staticModel.count(data, offset, length);
+            setSegments(length);
             double code = coding();
-            bytes = doubleToByteArray(code);
+            bytes = doubleToBytes(code);
+            codingChecksum = BlockChecksum.of(data, offset, length);
 
             rc = writeCoddingParams();
             if(rc != RC.CODE_SUCCESS) {
@@ -54,7 +136,7 @@ public class ArithmeticCoding implements IExecutor {
             }
         }
         if(cfgP.mode == CodingGrammarWords.DECODE) {
-            double code = byteArrayToDouble(bytesData);
+            double code = bytesToDouble(data, offset, length);
             String[] strings = new String[strNum];
             rc = readCoddingParams(strings);
             if(rc != RC.CODE_SUCCESS) {
@@ -62,6 +144,33 @@ public class ArithmeticCoding implements IExecutor {
                 return rc;
             }
             bytes = decoding(strings, code);
+            if(bytes == null) {
+                logger.log(Level.SEVERE, "Error: coding params do not match the input");
+                return RC.CODE_FAILED_TO_READ;
+            }
+        }
+        if(cfgP.mode == CodingGrammarWords.RANGE_ENCODE) {
+            if(cfgP.framing == CodingGrammarWords.STREAM) {
+                return streamCoding(data, offset, length);
+            }
+            if(container == null) {
+                rc = startContainer();
+                if(rc != RC.CODE_SUCCESS) {
+                    logger.log(Level.SEVERE, "Error: ", rc);
+                    return rc;
+                }
+            }
+            int end = offset + length;
+            do {
+                int blockLength = Math.min(end - offset, ContainerFormat.MAX_BLOCK_SIZE);
+                rc = encodeBlock(data, offset, blockLength);
+                if(rc != RC.CODE_SUCCESS) {
+                    logger.log(Level.SEVERE, "Error: ", rc);
+                    return rc;
+                }
+                offset += blockLength;
+            } while(offset < end);
+            return RC.CODE_SUCCESS;
         }
 
         rc = consumer.execute();
@@ -73,126 +182,578 @@ public class ArithmeticCoding implements IExecutor {
         return RC.CODE_SUCCESS;
     }
 
-    private byte[] handleData() {
+    private ByteBuffer handleData() {
+        if(bufferMediator != null) {
+            ByteBuffer view = bufferMediator.get();
+            if(view == null || view.hasArray()) {
+                return view;
+            }
+            inputCopy = pool.grow(inputCopy, view.remaining());
+            inputCopy.put(view);
+            inputCopy.flip();
+            return inputCopy;
+        }
         Object data = mediator.getData();
         if(data == null) {
             return null;
         }
         switch (type) {
             case BYTE: {
-                return (byte[]) data;
+                return ByteBuffer.wrap((byte[]) data);
             }
             case CHAR: {
-                byte[] byteData = new byte[((char[]) data).length];
-                for (int i = 0; i < ((char[]) data).length; ++i) {
-                    byteData[i] = (byte) ((char[]) data)[i];
-                }
-                return byteData;
+                char[] chars = (char[]) data;
+                inputCopy = pool.grow(inputCopy, chars.length);
+                BlockConversions.charsToBytes(chars, 0, inputCopy.array(), 0, chars.length);
+                return inputCopy;
             }
             case SHORT: {
-                byte[] byteData = new byte[((short[]) data).length * 2];
-                ByteBuffer.wrap(byteData).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().put(((short[]) data));
-                return byteData;
+                short[] shorts = (short[]) data;
+                inputCopy = pool.grow(inputCopy, shorts.length * 2);
+                BlockConversions.shortsToBytes(shorts, 0, inputCopy.array(), 0, shorts.length);
+                return inputCopy;
             }
         }
         return null;
     }
 
-    private TreeMap<Byte, Integer> count() {
-        TreeMap<Byte, Integer> probability = new TreeMap<Byte, Integer>();
-        for (byte aByte : codingBytes) {
-            if (!probability.containsKey(aByte)) {
-                probability.put(aByte, 0);
+    private void setSegments(int strLength) {
+        double left = 0;
+        int i = 0;
+        for(int symbol = Byte.MIN_VALUE; symbol <= Byte.MAX_VALUE; ++symbol) {
+            int count = staticModel.histogram(symbol & 0xFF);
+            if(count == 0) {
+                continue;
             }
-            int value = probability.get(aByte);
-            probability.put(aByte, value + 1);
+            Segment segment = segment(i);
+            segment.left = left;
+            left += (double) count / strLength;
+            segment.right = left;
+            segment.symbol = (byte) symbol;
+            ++i;
         }
-        return probability;
+        segmentCount = i;
     }
 
-    private Segment[] setSegments(TreeMap<Byte, Integer> prob, int strLength) {
-        Segment[] segments = new Segment[prob.size()];
-        double left = 0;
-        int i = 0;
-        for(Map.Entry<Byte, Integer> m : prob.entrySet()) {
+    private Segment segment(int i) {
+        if(segments[i] == null) {
             segments[i] = new Segment();
-            segments[i].left = left;
-            left += (double)m.getValue() / strLength;
-            segments[i].right = left;
-            segments[i].symbol = m.getKey();
-            ++i;
         }
-        return segments;
+        return segments[i];
+    }
+
+    private RC encodeBlock(byte[] data, int offset, int length) {
+        if(workers != null && cfgP.model == CodingGrammarWords.BLOCK) {
+            ByteBuffer block = pool.acquire(length);
+            System.arraycopy(data, offset, block.array(), 0, length);
+            return submit(() -> {
+                try {
+                    return rangeCoding(block.array(), 0, length, workerModels.get(), workerFrames.get());
+                } finally {
+                    pool.release(block);
+                }
+            });
+        }
+        return send(rangeCoding(data, offset, length, staticModel, frame));
     }
 
-    private Segment edges(Segment[] segments, byte symbol) {
-        for (Segment segment : segments) {
-            if (segment.symbol == symbol) {
-                Segment edges = new Segment();
-                edges.left = segment.left;
-                edges.right = segment.right;
-                return edges;
+    private ByteBuffer rangeCoding(byte[] data, int offset, int length, StaticModel model, CodingFrame frame) {
+        frame.key = false;
+        if(cfgP.model == CodingGrammarWords.ADAPTIVE) {
+            frame.kind = CodingFrame.ADAPTIVE_MODEL;
+            frame.key = codedBlocks++ % cfgP.keyInterval == 0;
+            if(frame.key) {
+                adaptiveModel.reset();
+            }
+        } else if(cfgP.model == CodingGrammarWords.CONTEXT) {
+            frame.kind = CodingFrame.CONTEXT_MODEL;
+            frame.order = cfgP.order;
+            frame.key = codedBlocks++ % cfgP.keyInterval == 0;
+            if(contextModel == null) {
+                contextModel = new ContextModel(cfgP.order);
+            } else if(frame.key) {
+                contextModel.reset();
             }
+        } else if(cfgP.model == CodingGrammarWords.SHARED && !model.isEmpty()) {
+            frame.kind = CodingFrame.PREVIOUS_MODEL;
+        } else {
+            model.count(data, offset, length);
+            model.scale(length, cfgP.model == CodingGrammarWords.SHARED ? 1 : 0);
+            frame.kind = CodingFrame.STATIC_MODEL;
+            model.copyFrequencies(frame.frequencies);
         }
-        return null;
+
+        RangeEncoder encoder = encoders.get();
+        encoder.reset();
+        if(frame.kind == CodingFrame.ADAPTIVE_MODEL) {
+            for(int i = offset; i < offset + length; ++i) {
+                int symbol = data[i] & 0xFF;
+                encoder.encode(adaptiveModel.cumFrequency(symbol), adaptiveModel.frequency(symbol), adaptiveModel.total());
+                adaptiveModel.update(symbol);
+            }
+        } else if(frame.kind == CodingFrame.CONTEXT_MODEL) {
+            for(int i = offset; i < offset + length; ++i) {
+                contextModel.encode(encoder, data[i] & 0xFF);
+            }
+        } else {
+            model.encode(encoder, data, offset, length);
+        }
+        encoder.finish();
+
+        frame.blockLength = length;
+        frame.codeLength = encoder.size();
+        frame.checked = true;
+        frame.checksum = BlockChecksum.of(data, offset, length);
+        ByteBuffer block = pool.acquire(CodingFrame.maxHeaderSize(SYMBOLS) + encoder.size());
+        frame.write(block);
+        block.put(encoder.buffer(), 0, encoder.size());
+        block.flip();
+        return block;
     }
 
-    private double coding() {
-        double left = 0, right = 1;
-        for (byte b : codingBytes) {
-            try {
-                Segment edge = edges(segments, b);
-                double newLeft = left + edge.left * (right - left);
-                double newRight = left + edge.right * (right - left);
+    private RC startContainer() {
+        container = new CodingContainer(SYMBOLS);
+        bytes = ByteBuffer.wrap(ContainerFormat.header());
+        return consumer.execute();
+    }
 
-                left = newLeft;
-                right = newRight;
-            } catch (NullPointerException e) {
-                logger.log(Level.SEVERE, "Exception: ", e);
+    private RC finishContainer() {
+        if(container == null) {
+            RC rc = startContainer();
+            if(rc != RC.CODE_SUCCESS) {
+                return rc;
             }
         }
-        return (right + left) / 2;
+        bytes = ByteBuffer.wrap(container.index());
+        return consumer.execute();
+    }
+
+    private RC streamCoding(byte[] data, int offset, int length) {
+        RC rc;
+        if(streamEncoder == null) {
+            streamEncoder = new RangeEncoder(STREAM_CHUNK + STREAM_MARGIN);
+            if(cfgP.model == CodingGrammarWords.CONTEXT) {
+                frame.kind = CodingFrame.CONTEXT_STREAM;
+                frame.order = cfgP.order;
+                if(contextModel == null) {
+                    contextModel = new ContextModel(cfgP.order);
+                }
+            } else {
+                frame.kind = CodingFrame.ADAPTIVE_STREAM;
+            }
+            frame.checked = true;
+            streamChecksum = BlockChecksum.create();
+            ByteBuffer header = ByteBuffer.allocate(CodingFrame.maxHeaderSize(SYMBOLS));
+            frame.write(header);
+            header.flip();
+            bytes = header;
+            rc = consumer.execute();
+            if(rc != RC.CODE_SUCCESS) {
+                return rc;
+            }
+        }
+        streamChecksum.update(data, offset, length);
+        for(int i = offset; i < offset + length; ++i) {
+            int symbol = data[i] & 0xFF;
+            streamEncoder.encodeBit(0, END_PROBABILITY);
+            if(frame.kind == CodingFrame.CONTEXT_STREAM) {
+                contextModel.encode(streamEncoder, symbol);
+            } else {
+                streamEncoder.encode(adaptiveModel.cumFrequency(symbol), adaptiveModel.frequency(symbol), adaptiveModel.total());
+                adaptiveModel.update(symbol);
+            }
+            if(streamEncoder.size() >= STREAM_CHUNK) {
+                rc = drainStream();
+                if(rc != RC.CODE_SUCCESS) {
+                    return rc;
+                }
+            }
+        }
+        if(streamEncoder.size() > 0) {
+            return drainStream();
+        }
+        return RC.CODE_SUCCESS;
+    }
+
+    private RC drainStream() {
+        byte[] buffer = streamEncoder.buffer();
+        if(streamView == null || streamView.array() != buffer) {
+            streamView = ByteBuffer.wrap(buffer);
+        }
+        streamView.clear();
+        streamView.limit(streamEncoder.size());
+        bytes = streamView;
+        RC rc = consumer.execute();
+        streamEncoder.discard();
+        return rc;
+    }
+
+    private RC finishStream() {
+        if(streamEncoder == null) {
+            RC rc = streamCoding(new byte[0], 0, 0);
+            if(rc != RC.CODE_SUCCESS) {
+                return rc;
+            }
+        }
+        streamEncoder.encodeBit(1, END_PROBABILITY);
+        int checksum = (int) streamChecksum.getValue();
+        for(int shift = 24; shift >= 0; shift -= 8) {
+            streamEncoder.encode((checksum >>> shift) & 0xFF, 1, SYMBOLS);
+        }
+        streamEncoder.finish();
+        return drainStream();
+    }
+
+    private RC streamDecode(boolean last) {
+        if(streamEnded) {
+            pendingSize = 0;
+            return RC.CODE_SUCCESS;
+        }
+        if(!streamStarted) {
+            if(!last && pendingSize < STREAM_MARGIN) {
+                return RC.CODE_SUCCESS;
+            }
+            streamDecoder.start(pending, 0, pendingSize);
+            streamStarted = true;
+        } else {
+            streamDecoder.feed(pending, 0, pendingSize);
+        }
+
+        RC rc;
+        byte[] output = streamOutput.array();
+        int size = 0;
+        while(last || pendingSize - streamDecoder.position() >= STREAM_MARGIN) {
+            if(streamDecoder.position() > pendingSize) {
+                logger.log(Level.SEVERE, "Error: truncated coded stream");
+                return RC.CODE_FAILED_TO_READ;
+            }
+            if(streamDecoder.decodeBit(END_PROBABILITY) == 1) {
+                streamEnded = true;
+                if(frame.checked) {
+                    for(int i = 0; i < Integer.BYTES; ++i) {
+                        int b = streamDecoder.decodeFreq(SYMBOLS);
+                        streamDecoder.decodeUpdate(b, 1);
+                        expectedChecksum = (expectedChecksum << 8) | b;
+                    }
+                }
+                break;
+            }
+            int symbol;
+            if(frame.kind == CodingFrame.CONTEXT_STREAM) {
+                symbol = contextModel.decode(streamDecoder);
+            } else {
+                symbol = adaptiveModel.findSymbol(streamDecoder.decodeFreq(adaptiveModel.total()));
+                streamDecoder.decodeUpdate(adaptiveModel.foundCumFrequency(), adaptiveModel.frequency(symbol));
+                adaptiveModel.update(symbol);
+            }
+            output[size++] = (byte) symbol;
+            if(size == STREAM_CHUNK) {
+                rc = emitStream(size);
+                if(rc != RC.CODE_SUCCESS) {
+                    return rc;
+                }
+                size = 0;
+            }
+        }
+        if(size > 0) {
+            rc = emitStream(size);
+            if(rc != RC.CODE_SUCCESS) {
+                return rc;
+            }
+        } else if(streamEnded) {
+            rc = verifyStream();
+            if(rc != RC.CODE_SUCCESS) {
+                return rc;
+            }
+        }
+        if(streamDecoder.position() > pendingSize) {
+            logger.log(Level.SEVERE, "Error: truncated coded stream");
+            return RC.CODE_FAILED_TO_READ;
+        }
+
+        int consumed = streamDecoder.position();
+        System.arraycopy(pending, consumed, pending, 0, pendingSize - consumed);
+        pendingSize -= consumed;
+        if(streamEnded) {
+            pendingSize = 0;
+        }
+        return RC.CODE_SUCCESS;
     }
 
-    private byte[] decoding(double code) {
-        byte[] decodingBytes = new byte[codingBytes.length];
-        for(int i = 0; i < codingBytes.length; ++i) {
-            for(Segment segment : segments) {
-                if(code > segment.left && code < segment.right) {
-                    decodingBytes[i] = segment.symbol;
-                    code = (code - segment.left) / (segment.right - segment.left);
+    private RC emitStream(int size) {
+        streamChecksum.update(streamOutput.array(), 0, size);
+        if(streamEnded) {
+            RC rc = verifyStream();
+            if(rc != RC.CODE_SUCCESS) {
+                return rc;
+            }
+        }
+        streamOutput.clear();
+        streamOutput.limit(size);
+        bytes = streamOutput;
+        return consumer.execute();
+    }
+
+    private RC verifyStream() {
+        if(frame.checked && (int) streamChecksum.getValue() != expectedChecksum) {
+            logger.log(Level.SEVERE, "Error: stream checksum mismatch");
+            return RC.CODE_FAILED_TO_READ;
+        }
+        return RC.CODE_SUCCESS;
+    }
+
+    private RC verifyIndex(byte[] data, int offset, int length) {
+        indexRead = true;
+        if(blockChecksums == null) {
+            return RC.CODE_SUCCESS;
+        }
+        CodingContainer index = new CodingContainer(SYMBOLS);
+        if(!index.read(ByteBuffer.wrap(data, offset, length)) || !index.checked()
+                || index.checksum() != (int) blockChecksums.getValue()) {
+            logger.log(Level.SEVERE, "Error: stream checksum mismatch");
+            return RC.CODE_FAILED_TO_READ;
+        }
+        return RC.CODE_SUCCESS;
+    }
+
+    private RC rangeDecode(byte[] data, int offset, int length) {
+        if(pending.length < pendingSize + length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingSize + length));
+        }
+        System.arraycopy(data, offset, pending, pendingSize, length);
+        pendingSize += length;
+        if(streamDecoder != null) {
+            return streamDecode(false);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(pending, 0, pendingSize);
+        if(!containerChecked) {
+            if(pendingSize < ContainerFormat.HEADER_SIZE && ContainerFormat.startsLikeHeader(pending[0])) {
+                return RC.CODE_SUCCESS;
+            }
+            containerChecked = true;
+            if(ContainerFormat.startsLikeHeader(pending[0])) {
+                if(!ContainerFormat.isHeader(pending, 0)) {
+                    logger.log(Level.SEVERE, "Error: unsupported container");
+                    return RC.CODE_FAILED_TO_READ;
+                }
+                buffer.position(ContainerFormat.HEADER_SIZE);
+            }
+        }
+        while(true) {
+            if(!frameHeaderRead) {
+                int status = frame.read(buffer);
+                if(status == CodingFrame.READ_INCOMPLETE) {
                     break;
                 }
+                if(status == CodingFrame.READ_INVALID) {
+                    logger.log(Level.SEVERE, "Error: invalid frame " + frame.invalidField);
+                    return RC.CODE_FAILED_TO_READ;
+                }
+                frameHeaderRead = true;
+                if(CodingFrame.isStream(frame.kind)) {
+                    if(frame.kind == CodingFrame.CONTEXT_STREAM && (frame.order < 1 || frame.order > ContextModel.MAX_ORDER)) {
+                        logger.log(Level.SEVERE, "Error: invalid frame model");
+                        return RC.CODE_FAILED_TO_READ;
+                    }
+                    if(frame.kind == CodingFrame.CONTEXT_STREAM) {
+                        contextModel = new ContextModel(frame.order);
+                    }
+                    streamDecoder = new RangeDecoder();
+                    streamChecksum = BlockChecksum.create();
+                    streamOutput = pool.acquire(STREAM_CHUNK);
+                    System.arraycopy(pending, buffer.position(), pending, 0, buffer.remaining());
+                    pendingSize = buffer.remaining();
+                    return streamDecode(false);
+                }
+                if(frame.kind != CodingFrame.INDEX && !frameDecoder.accept(frame)) {
+                    logger.log(Level.SEVERE, "Error: invalid frame model");
+                    return RC.CODE_FAILED_TO_READ;
+                }
+                if(frame.checked) {
+                    if(blockChecksums == null) {
+                        blockChecksums = BlockChecksum.create();
+                    }
+                    BlockChecksum.update(blockChecksums, frame.checksum);
+                }
+            }
+            if(buffer.remaining() < frame.codeLength) {
+                break;
+            }
+            int kind = frame.kind;
+            int blockLength = frame.blockLength;
+            int[] model = frameDecoder.model();
+            boolean checked = frame.checked;
+            int checksum = frame.checksum;
+            RC rc = RC.CODE_SUCCESS;
+            if(kind == CodingFrame.INDEX) {
+                rc = emit(true);
+                if(rc == RC.CODE_SUCCESS) {
+                    rc = verifyIndex(pending, buffer.position(), frame.codeLength);
+                }
+            } else if(workers != null && FrameDecoder.independent(kind)) {
+                int codeLength = frame.codeLength;
+                ByteBuffer code = pool.acquire(codeLength);
+                System.arraycopy(pending, buffer.position(), code.array(), 0, codeLength);
+                rc = submit(() -> {
+                    try {
+                        return verified(frameDecoder.decode(kind, blockLength, model, workerModels.get(), code.array(), 0, codeLength),
+                                checked, checksum);
+                    } finally {
+                        pool.release(code);
+                    }
+                });
+            } else {
+                rc = emit(true);
+                if(rc == RC.CODE_SUCCESS) {
+                    ByteBuffer block = frameDecoder.decode(kind, blockLength, model, null, pending, buffer.position(), frame.codeLength);
+                    if(checked && !BlockChecksum.matches(block, checksum)) {
+                        pool.release(block);
+                        logger.log(Level.SEVERE, "Error: block checksum mismatch");
+                        rc = RC.CODE_FAILED_TO_READ;
+                    } else {
+                        rc = send(block);
+                    }
+                }
+            }
+            buffer.position(buffer.position() + frame.codeLength);
+            frameHeaderRead = false;
+
+            if(rc != RC.CODE_SUCCESS) {
+                logger.log(Level.SEVERE, "Error: ", rc);
+                return rc;
+            }
+        }
+
+        System.arraycopy(pending, buffer.position(), pending, 0, buffer.remaining());
+        pendingSize = buffer.remaining();
+        return RC.CODE_SUCCESS;
+    }
+
+    private ByteBuffer verified(ByteBuffer block, boolean checked, int checksum) {
+        if(checked && !BlockChecksum.matches(block, checksum)) {
+            pool.release(block);
+            throw new IllegalStateException("block checksum mismatch");
+        }
+        return block;
+    }
+
+    private RC submit(Callable<ByteBuffer> job) {
+        inFlight.add(workers.submit(job));
+        return emit(false);
+    }
+
+    private RC emit(boolean all) {
+        while(!inFlight.isEmpty() && (all || inFlight.size() >= 2 * cfgP.workers || inFlight.peek().isDone())) {
+            ByteBuffer block;
+            try {
+                block = inFlight.poll().get();
+            } catch (InterruptedException | ExecutionException e) {
+                logger.log(Level.SEVERE, "Exception: ", e);
+                return cfgP.mode == CodingGrammarWords.RANGE_ENCODE ? RC.CODE_FAILED_TO_WRITE : RC.CODE_FAILED_TO_READ;
+            }
+            RC rc = send(block);
+            if(rc != RC.CODE_SUCCESS) {
+                return rc;
             }
         }
-        return decodingBytes;
+        return RC.CODE_SUCCESS;
+    }
+
+    private void stopWorkers() {
+        if(workers != null) {
+            workers.shutdownNow();
+            workers = null;
+        }
+        inFlight.clear();
+    }
+
+    private RC send(ByteBuffer block) {
+        if(container != null) {
+            container.add(block);
+        }
+        bytes = block;
+        RC rc = consumer.execute();
+        bytes = null;
+        pool.release(block);
+        return rc;
     }
 
-    private Segment parseSegments(String str) {
+    private void setSymbolSegments() {
+        Arrays.fill(symbolSegments, null);
+        for(int i = 0; i < segmentCount; ++i) {
+            symbolSegments[segments[i].symbol & 0xFF] = segments[i];
+        }
+    }
+
+    private int findSegment(double code) {
+        int low = 0;
+        int high = segmentCount - 1;
+        while(low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if(segments[middle].left < code) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private double coding() {
+        setSymbolSegments();
+        double left = 0, right = 1;
+        for (int i = codingOffset; i < codingOffset + codingLength; ++i) {
+            Segment edge = symbolSegments[codingBytes[i] & 0xFF];
+            double newLeft = left + edge.left * (right - left);
+            double newRight = left + edge.right * (right - left);
+
+            left = newLeft;
+            right = newRight;
+        }
+        return (right + left) / 2;
+    }
+
+    private void decoding(double code, byte[] decodingBytes, int length) {
+        for(int i = 0; i < length; ++i) {
+            Segment segment = segments[findSegment(code)];
+            decodingBytes[i] = segment.symbol;
+            code = (code - segment.left) / (segment.right - segment.left);
+        }
+    }
+
+    private void parseSegment(String str, Segment segment) {
         String[] strings = str.split(" ");
-        Segment segment = new Segment();
         segment.symbol = Byte.parseByte(strings[0]);
         segment.left = Double.parseDouble(strings[1]);
         segment.right = Double.parseDouble(strings[2]);
-        return segment;
     }
 
-    private byte[] decoding(String[] aString, double code) {
-        int length = Integer.parseInt(aString[0].substring(0, aString[0].lastIndexOf(';')));
+    private ByteBuffer decoding(String[] aString, double code) {
+        if(aString[0] == null || aString[1] == null) {
+            return null;
+        }
+        int separator = aString[0].lastIndexOf(';');
+        int length = Integer.parseInt(aString[0].substring(0, separator));
+        String checksum = aString[0].substring(separator + 1);
 
         String[] strings = aString[1].split(";");
-        segments = new Segment[strings.length];
+        segmentCount = strings.length;
         for(int i = 0; i < strings.length; ++i) {
-            segments[i] = parseSegments(strings[i]);
+            parseSegment(strings[i], segment(i));
         }
 
-        codingBytes = new byte[length];
-        return decoding(code);
+        decoded = pool.grow(decoded, length);
+        decoding(code, decoded.array(), length);
+        if(!checksum.isEmpty() && Integer.parseInt(checksum) != BlockChecksum.of(decoded.array(), 0, length)) {
+            return null;
+        }
+        return decoded;
     }
 
     @Override
     public TYPE[] getOutputTypes() {
-        return types;
+        return outputTypes;
     }
 
     public IMediator getMediator(TYPE type) {
@@ -210,12 +771,21 @@ public class ArithmeticCoding implements IExecutor {
     @Override
     public RC setConfig(String configName) {
         config = configName;
-        String[] str = readConfig();
-        TreeMap<String, String> tokens = SyntacticCodingParser.parse(str);
-        cfgP = new ConfigCodingParams();
-        RC rc = SemanticCodingParser.parse(tokens, cfgP);
-        if(rc != RC.CODE_SUCCESS) {
-            return rc;
+        File file = new File(config);
+        CachedConfig<ConfigCodingParams> cached = configCache.get(config);
+        if(cached != null && cached.isCurrent(file)) {
+            cfgP = cached.params;
+        } else {
+            long modified = file.lastModified();
+            long length = file.length();
+            String[] str = readConfig();
+            TreeMap<String, String> tokens = SyntacticCodingParser.parse(str);
+            cfgP = new ConfigCodingParams();
+            RC rc = SemanticCodingParser.parse(tokens, cfgP);
+            if(rc != RC.CODE_SUCCESS) {
+                return rc;
+            }
+            configCache.put(config, new CachedConfig<>(modified, length, cfgP));
         }
         if(cfgP.CodingParams != null) {
             if(cfgP.mode == CodingGrammarWords.ENCODE) {
@@ -270,10 +840,12 @@ public class ArithmeticCoding implements IExecutor {
     private RC writeCoddingParams() {
         if(bufferedWriter != null) {
             try {
-                bufferedWriter.write(Integer.toString(codingBytes.length));
+                bufferedWriter.write(Integer.toString(codingLength));
                 bufferedWriter.write(';');
+                bufferedWriter.write(Integer.toString(codingChecksum));
                 bufferedWriter.newLine();
-                for(Segment segment : segments) {
+                for(int i = 0; i < segmentCount; ++i) {
+                    Segment segment = segments[i];
                     bufferedWriter.write(Byte.toString(segment.symbol));
                     bufferedWriter.write(" ");
                     bufferedWriter.write(Double.toString(segment.left));
@@ -310,28 +882,31 @@ public class ArithmeticCoding implements IExecutor {
             return RC.CODE_FAILED_PIPELINE_CONSTRUCTION;
         }
         mediator = producer.getMediator(type);
+        bufferMediator = bufferMediator(type, mediator);
         return RC.CODE_SUCCESS;
     }
 
-    private byte[] doubleToByteArray(double d) {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        DataOutputStream dos = new DataOutputStream(bos);
-        try {
-            dos.writeDouble(d);
-            dos.flush();
-            return bos.toByteArray();
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "Expression: ", e);
+    @SuppressWarnings("unchecked")
+    private static Supplier<ByteBuffer> bufferMediator(TYPE type, IMediator mediator) {
+        if(type == TYPE.BYTE && mediator instanceof Supplier) {
+            return (Supplier<ByteBuffer>) mediator;
         }
         return null;
     }
 
-    private double byteArrayToDouble(byte[] bytes) {
-        ByteBuffer buffer = ByteBuffer.allocate(Double.BYTES);
-        buffer.put(bytes);
-        buffer.flip();
+    private ByteBuffer doubleToBytes(double d) {
+        doubleBytes.clear();
+        doubleBytes.putDouble(d);
+        doubleBytes.flip();
+        return doubleBytes;
+    }
 
-        return buffer.getDouble();
+    private static double bytesToDouble(byte[] data, int offset, int length) {
+        long bits = 0;
+        for(int i = 0; i < Double.BYTES; ++i) {
+            bits = (bits << 8) | (i < length ? data[offset + i] & 0xFF : 0);
+        }
+        return Double.longBitsToDouble(bits);
     }
 
     @Override
@@ -340,13 +915,26 @@ public class ArithmeticCoding implements IExecutor {
         return RC.CODE_SUCCESS;
     }
 
-    public class ByteMediator implements IMediator {
+    public class ByteMediator implements IMediator, Supplier<ByteBuffer> {
         @Override
         public Object getData() {
+            ByteBuffer view = get();
+            if(view == null) {
+                return null;
+            }
+            byte[] data = new byte[view.remaining()];
+            view.get(data);
+            return data;
+        }
+
+        @Override
+        public ByteBuffer get() {
             if(bytes == null) {
                 return null;
             }
-            return Arrays.copyOf(bytes, bytes.length);
+            ByteBuffer view = bytes.duplicate();
+            view.rewind();
+            return view;
         }
     }
 
@@ -356,10 +944,8 @@ public class ArithmeticCoding implements IExecutor {
             if(bytes == null) {
                 return null;
             }
-            char[] chars = new char[bytes.length];
-            for(int i = 0; i < bytes.length; ++i) {
-                chars[i] = (char) bytes[i];
-            }
+            char[] chars = new char[bytes.limit()];
+            BlockConversions.bytesToChars(bytes.array(), bytes.arrayOffset(), chars, 0, chars.length);
             return chars;
         }
     }
@@ -369,8 +955,8 @@ public class ArithmeticCoding implements IExecutor {
             if(bytes == null) {
                 return null;
             }
-            short[] shorts = new short[bytes.length / 2];
-            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(shorts);
+            short[] shorts = new short[bytes.limit() / 2];
+            BlockConversions.bytesToShorts(bytes.array(), bytes.arrayOffset(), shorts, 0, shorts.length);
             return shorts;
         }
     }
@@ -378,20 +964,64 @@ public class ArithmeticCoding implements IExecutor {
     private IConsumer consumer;
     private IProducer producer;
     private String config;
-    private static final TYPE[] types = {TYPE.CHAR, TYPE.SHORT};
+    private static final TYPE[] types = {TYPE.BYTE, TYPE.CHAR, TYPE.SHORT};
+    private static final TYPE[] outputTypes = {TYPE.BYTE, TYPE.CHAR, TYPE.SHORT};
     private final Logger logger;
     private ConfigCodingParams cfgP;
+    private static final ConcurrentHashMap<String, CachedConfig<ConfigCodingParams>> configCache = new ConcurrentHashMap<>();
     private IMediator mediator;
+    private Supplier<ByteBuffer> bufferMediator;
     private TYPE type;
 
     private byte[] codingBytes;
-    private Segment[] segments;
+    private int codingOffset;
+    private int codingLength;
+    private int codingChecksum;
+    private final Segment[] segments = new Segment[SYMBOLS];
+    private int segmentCount;
+    private final ByteBuffer doubleBytes = ByteBuffer.allocate(Double.BYTES);
+    private ByteBuffer decoded;
     private BufferedWriter bufferedWriter;
     private BufferedReader bufferedReader;
     private final int strNumForOutput = 2;
     private int strNum;
 
-    private byte[] bytes;
+    private static final int SYMBOLS = 256;
+    private static final int MAX_TOTAL_FREQUENCY = 1 << 16;
+    private final StaticModel staticModel = new StaticModel(SYMBOLS, MAX_TOTAL_FREQUENCY);
+    private final BufferPool pool = BufferPool.shared();
+    private final ThreadLocal<CodingFrame> workerFrames = ThreadLocal.withInitial(() -> new CodingFrame(SYMBOLS));
+    private final ThreadLocal<StaticModel> workerModels = ThreadLocal.withInitial(() -> new StaticModel(SYMBOLS, MAX_TOTAL_FREQUENCY));
+    private final FrameDecoder frameDecoder = new FrameDecoder(SYMBOLS, MAX_TOTAL_FREQUENCY);
+    private CodingContainer container;
+    private long codedBlocks;
+    private boolean containerChecked;
+    private ExecutorService workers;
+    private final ArrayDeque<Future<ByteBuffer>> inFlight = new ArrayDeque<>();
+    private final Segment[] symbolSegments = new Segment[SYMBOLS];
+    private final CodingFrame frame = new CodingFrame(SYMBOLS);
+    private final AdaptiveModel adaptiveModel = new AdaptiveModel(SYMBOLS, MAX_TOTAL_FREQUENCY);
+    private ContextModel contextModel;
+    private boolean frameHeaderRead;
+    private byte[] pending = new byte[0];
+    private int pendingSize;
+    private RangeEncoder streamEncoder;
+    private RangeDecoder streamDecoder;
+    private boolean streamStarted;
+    private boolean streamEnded;
+    private ByteBuffer streamOutput;
+    private ByteBuffer streamView;
+    private ByteBuffer inputCopy;
+    private Checksum streamChecksum;
+    private Checksum blockChecksums;
+    private boolean indexRead;
+    private int expectedChecksum;
+    private static final int STREAM_CHUNK = 1 << 16;
+    private static final int STREAM_MARGIN = 64;
+    private static final int END_PROBABILITY = 1;
+    private static final ThreadLocal<RangeEncoder> encoders = ThreadLocal.withInitial(() -> new RangeEncoder(STREAM_CHUNK));
+
+    private ByteBuffer bytes;
 }
 
 
@@ -426,6 +1056,61 @@ class SemanticCodingParser {
                     cfgP.mode = CodingGrammarWords.ENCODE;
                 } else if(entry.getValue().equals(grammar.token(CodingGrammarWords.DECODE.ordinal()))) {
                     cfgP.mode = CodingGrammarWords.DECODE;
+                } else if(entry.getValue().equals(grammar.token(CodingGrammarWords.RANGE_ENCODE.ordinal()))) {
+                    cfgP.mode = CodingGrammarWords.RANGE_ENCODE;
+                } else if(entry.getValue().equals(grammar.token(CodingGrammarWords.RANGE_DECODE.ordinal()))) {
+                    cfgP.mode = CodingGrammarWords.RANGE_DECODE;
+                }
+            } else if(entry.getKey().equals(grammar.token(CodingGrammarWords.MODEL.ordinal()))) {
+                if(entry.getValue().equals(grammar.token(CodingGrammarWords.BLOCK.ordinal()))) {
+                    cfgP.model = CodingGrammarWords.BLOCK;
+                } else if(entry.getValue().equals(grammar.token(CodingGrammarWords.SHARED.ordinal()))) {
+                    cfgP.model = CodingGrammarWords.SHARED;
+                } else if(entry.getValue().equals(grammar.token(CodingGrammarWords.ADAPTIVE.ordinal()))) {
+                    cfgP.model = CodingGrammarWords.ADAPTIVE;
+                } else if(entry.getValue().equals(grammar.token(CodingGrammarWords.CONTEXT.ordinal()))) {
+                    cfgP.model = CodingGrammarWords.CONTEXT;
+                } else {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+            } else if(entry.getKey().equals(grammar.token(CodingGrammarWords.FRAMING.ordinal()))) {
+                if(entry.getValue().equals(grammar.token(CodingGrammarWords.BLOCKS.ordinal()))) {
+                    cfgP.framing = CodingGrammarWords.BLOCKS;
+                } else if(entry.getValue().equals(grammar.token(CodingGrammarWords.STREAM.ordinal()))) {
+                    cfgP.framing = CodingGrammarWords.STREAM;
+                } else {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+            } else if(entry.getKey().equals(grammar.token(CodingGrammarWords.ORDER.ordinal()))) {
+                try {
+                    cfgP.order = Integer.parseInt(entry.getValue());
+                } catch (NumberFormatException e) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+                if(cfgP.order < 1 || cfgP.order > ContextModel.MAX_ORDER) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+            } else if(entry.getKey().equals(grammar.token(CodingGrammarWords.WORKERS.ordinal()))) {
+                if(entry.getValue().equals(grammar.token(CodingGrammarWords.AUTO.ordinal()))) {
+                    cfgP.workers = Runtime.getRuntime().availableProcessors();
+                } else {
+                    try {
+                        cfgP.workers = Integer.parseInt(entry.getValue());
+                    } catch (NumberFormatException e) {
+                        return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                    }
+                }
+                if(cfgP.workers < 1) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+            } else if(entry.getKey().equals(grammar.token(CodingGrammarWords.KEY_INTERVAL.ordinal()))) {
+                try {
+                    cfgP.keyInterval = Integer.parseInt(entry.getValue());
+                } catch (NumberFormatException e) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+                if(cfgP.keyInterval < 1) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
                 }
             } else if (entry.getKey().equals(grammar.token(CodingGrammarWords.CODING_PARAMS.ordinal()))) {
                 cfgP.CodingParams = entry.getValue();
@@ -433,6 +1118,10 @@ class SemanticCodingParser {
                 return RC.CODE_CONFIG_SEMANTIC_ERROR;
             }
         }
+        if(cfgP.framing == CodingGrammarWords.STREAM && cfgP.mode == CodingGrammarWords.RANGE_ENCODE
+                && cfgP.model != CodingGrammarWords.ADAPTIVE && cfgP.model != CodingGrammarWords.CONTEXT) {
+            return RC.CODE_CONFIG_SEMANTIC_ERROR;
+        }
 
         return RC.CODE_SUCCESS;
     }
@@ -440,6 +1129,11 @@ class SemanticCodingParser {
 
 class ConfigCodingParams {
     CodingGrammarWords mode;
+    CodingGrammarWords model = CodingGrammarWords.BLOCK;
+    CodingGrammarWords framing = CodingGrammarWords.BLOCKS;
+    int order = 2;
+    int workers = 1;
+    int keyInterval = 16;
     String CodingParams;
 }
 
@@ -447,12 +1141,26 @@ class CodingGrammar extends BaseGrammar {
     CodingGrammar() {
         super(aTokens);
     }
-    private static final String[] aTokens = new String[4];
+    private static final String[] aTokens = new String[18];
     static {
         aTokens[0] = "Mode";
         aTokens[1] = "Encode";
         aTokens[2] = "Decode";
         aTokens[3] = "CodingParams";
+        aTokens[4] = "RangeEncode";
+        aTokens[5] = "RangeDecode";
+        aTokens[6] = "Model";
+        aTokens[7] = "Block";
+        aTokens[8] = "Shared";
+        aTokens[9] = "Adaptive";
+        aTokens[10] = "Context";
+        aTokens[11] = "Order";
+        aTokens[12] = "Workers";
+        aTokens[13] = "Framing";
+        aTokens[14] = "Blocks";
+        aTokens[15] = "Stream";
+        aTokens[16] = "Auto";
+        aTokens[17] = "KeyInterval";
     }
 }
 
@@ -460,6 +1168,20 @@ enum CodingGrammarWords {
     MODE,
     ENCODE,
     DECODE,
-    CODING_PARAMS
+    CODING_PARAMS,
+    RANGE_ENCODE,
+    RANGE_DECODE,
+    MODEL,
+    BLOCK,
+    SHARED,
+    ADAPTIVE,
+    CONTEXT,
+    ORDER,
+    WORKERS,
+    FRAMING,
+    BLOCKS,
+    STREAM,
+    AUTO,
+    KEY_INTERVAL
 }
 
@@ -0,0 +1,84 @@
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+class BlockChecksum {
+    static Checksum create() {
+        if(CRC32C != null) {
+            try {
+                return (Checksum) CRC32C.newInstance();
+            } catch (ReflectiveOperationException e) {
+                return new Crc32c();
+            }
+        }
+        return new Crc32c();
+    }
+
+    static int of(byte[] data, int offset, int length) {
+        Checksum checksum = checksums.get();
+        checksum.reset();
+        checksum.update(data, offset, length);
+        return (int) checksum.getValue();
+    }
+
+    static boolean matches(ByteBuffer block, int expected) {
+        return of(block.array(), block.arrayOffset() + block.position(), block.remaining()) == expected;
+    }
+
+    static void update(Checksum checksum, int value) {
+        for(int shift = 24; shift >= 0; shift -= 8) {
+            checksum.update(value >>> shift);
+        }
+    }
+
+    private static Constructor<?> crc32c() {
+        try {
+            return Class.forName("java.util.zip.CRC32C").getConstructor();
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static final Constructor<?> CRC32C = crc32c();
+    private static final ThreadLocal<Checksum> checksums = ThreadLocal.withInitial(BlockChecksum::create);
+}
+
+class Crc32c implements Checksum {
+    @Override
+    public void update(int b) {
+        crc = (crc >>> 8) ^ TABLE[(crc ^ b) & 0xFF];
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        int value = crc;
+        for(int i = off; i < off + len; ++i) {
+            value = (value >>> 8) ^ TABLE[(value ^ b[i]) & 0xFF];
+        }
+        crc = value;
+    }
+
+    @Override
+    public long getValue() {
+        return ~crc & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public void reset() {
+        crc = 0xFFFFFFFF;
+    }
+
+    private static final int POLYNOMIAL = 0x82F63B78;
+    private static final int[] TABLE = new int[256];
+    static {
+        for(int i = 0; i < TABLE.length; ++i) {
+            int value = i;
+            for(int j = 0; j < 8; ++j) {
+                value = (value & 1) != 0 ? (value >>> 1) ^ POLYNOMIAL : value >>> 1;
+            }
+            TABLE[i] = value;
+        }
+    }
+
+    private int crc = 0xFFFFFFFF;
+}
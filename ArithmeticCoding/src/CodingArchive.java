@@ -0,0 +1,149 @@
+import ru.spbstu.pipeline.RC;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class CodingArchive {
+    public CodingArchive(Logger log) {
+        logger = log;
+    }
+
+    public RC open(String fileName) {
+        try {
+            file = new RandomAccessFile(fileName, "r");
+            channel = file.getChannel();
+            long indexOffset = ContainerFormat.indexOffset(channel);
+            if(indexOffset < 0) {
+                logger.log(Level.SEVERE, "Error: not a coding container");
+                return RC.CODE_FAILED_TO_READ;
+            }
+
+            ByteBuffer index = readBytes(indexOffset, (int) (channel.size() - indexOffset));
+            if(frame.read(index) != CodingFrame.READ_OK || frame.kind != CodingFrame.INDEX || !container.read(index)) {
+                logger.log(Level.SEVERE, "Error: invalid block index");
+                return RC.CODE_FAILED_TO_READ;
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Exception: ", e);
+            return RC.CODE_INVALID_INPUT_STREAM;
+        }
+
+        frameOffsets = new long[container.size() + 1];
+        blockOffsets = new long[container.size() + 1];
+        frameOffsets[0] = ContainerFormat.HEADER_SIZE;
+        for(int i = 0; i < container.size(); ++i) {
+            frameOffsets[i + 1] = frameOffsets[i] + container.frameLength(i);
+            blockOffsets[i + 1] = blockOffsets[i] + container.blockLength(i);
+        }
+        return RC.CODE_SUCCESS;
+    }
+
+    public long size() {
+        return blockOffsets[blockOffsets.length - 1];
+    }
+
+    public byte[] read(long offset, int length) {
+        if(offset < 0 || length < 0 || offset + length > size()) {
+            logger.log(Level.SEVERE, "Error: ", RC.CODE_INVALID_ARGUMENT);
+            return null;
+        }
+        byte[] data = new byte[length];
+        if(length == 0) {
+            return data;
+        }
+        int first = block(offset);
+        int last = block(offset + length - 1);
+        int start = first;
+        while(!container.key(start)) {
+            --start;
+        }
+
+        FrameDecoder decoder = new FrameDecoder(SYMBOLS, MAX_TOTAL_FREQUENCY);
+        ByteBuffer frameBytes = null;
+        try {
+            for(int i = start; i <= last; ++i) {
+                frameBytes = pool.grow(frameBytes, container.frameLength(i));
+                readBytes(frameOffsets[i], frameBytes);
+                if(frame.read(frameBytes) != CodingFrame.READ_OK || !decoder.accept(frame) || frame.codeLength != frameBytes.remaining()) {
+                    logger.log(Level.SEVERE, "Error: invalid frame model");
+                    return null;
+                }
+                if(i < first && FrameDecoder.independent(frame.kind)) {
+                    continue;
+                }
+                ByteBuffer block = decoder.decode(frame.kind, frame.blockLength, decoder.model(), null,
+                        frameBytes.array(), frameBytes.position(), frame.codeLength);
+                if(frame.checked && !BlockChecksum.matches(block, frame.checksum)) {
+                    pool.release(block);
+                    logger.log(Level.SEVERE, "Error: block checksum mismatch");
+                    return null;
+                }
+                if(i >= first) {
+                    long from = Math.max(offset, blockOffsets[i]);
+                    long to = Math.min(offset + length, blockOffsets[i + 1]);
+                    System.arraycopy(block.array(), (int) (from - blockOffsets[i]), data, (int) (from - offset), (int) (to - from));
+                }
+                pool.release(block);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.SEVERE, "Exception: ", e);
+            return null;
+        } finally {
+            pool.release(frameBytes);
+        }
+        return data;
+    }
+
+    public RC close() {
+        try {
+            if(file != null) {
+                file.close();
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Exception: ", e);
+            return RC.CODE_FAILED_TO_READ;
+        }
+        return RC.CODE_SUCCESS;
+    }
+
+    private int block(long offset) {
+        int low = 0;
+        int high = container.size() - 1;
+        while(low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if(blockOffsets[middle] <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private ByteBuffer readBytes(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readBytes(position, buffer);
+        return buffer;
+    }
+
+    private void readBytes(long position, ByteBuffer buffer) throws IOException {
+        ContainerFormat.readFully(channel, buffer, position);
+        buffer.flip();
+    }
+
+    private static final int SYMBOLS = 256;
+    private static final int MAX_TOTAL_FREQUENCY = 1 << 16;
+
+    private final Logger logger;
+    private final BufferPool pool = BufferPool.shared();
+    private final CodingFrame frame = new CodingFrame(SYMBOLS);
+    private final CodingContainer container = new CodingContainer(SYMBOLS);
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private long[] frameOffsets;
+    private long[] blockOffsets;
+}
@@ -0,0 +1,114 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Checksum;
+
+class CodingContainer {
+    CodingContainer(int symbols) {
+        frame = new CodingFrame(symbols);
+    }
+
+    void add(ByteBuffer frameBytes) {
+        int position = frameBytes.position();
+        frame.read(frameBytes);
+        frameBytes.position(position);
+        if(size == frameLengths.length) {
+            frameLengths = Arrays.copyOf(frameLengths, size * 2);
+            blockLengths = Arrays.copyOf(blockLengths, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        frameLengths[size] = frameBytes.remaining();
+        blockLengths[size] = frame.blockLength;
+        keys[size] = size == 0 || frame.kind == CodingFrame.STATIC_MODEL || frame.key;
+        if(frame.checked) {
+            BlockChecksum.update(streamChecksum, frame.checksum);
+            checked = true;
+        }
+        ++size;
+        indexOffset += frameBytes.remaining();
+    }
+
+    byte[] index() {
+        ByteBuffer body = ByteBuffer.allocate(ContainerFormat.MAX_VARINT_SIZE * (2 * size + 1) + size + Integer.BYTES);
+        ContainerFormat.putVarint(body, size);
+        for(int i = 0; i < size; ++i) {
+            ContainerFormat.putVarint(body, frameLengths[i]);
+            ContainerFormat.putVarint(body, blockLengths[i]);
+            body.put((byte) (keys[i] ? 1 : 0));
+        }
+        if(checked) {
+            body.putInt((int) streamChecksum.getValue());
+        }
+
+        frame.kind = CodingFrame.INDEX;
+        frame.checked = false;
+        frame.key = false;
+        frame.blockLength = 0;
+        frame.codeLength = body.position() + ContainerFormat.FOOTER_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate(CodingFrame.maxHeaderSize(0) + frame.codeLength);
+        frame.write(buffer);
+        buffer.put(body.array(), 0, body.position());
+        ContainerFormat.putFooter(buffer, indexOffset);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    boolean read(ByteBuffer body) {
+        int count = ContainerFormat.getVarint(body);
+        if(count < 0 || count > body.remaining()) {
+            return false;
+        }
+        size = 0;
+        frameLengths = new int[Math.max(1, count)];
+        blockLengths = new int[Math.max(1, count)];
+        keys = new boolean[Math.max(1, count)];
+        for(int i = 0; i < count; ++i) {
+            frameLengths[i] = ContainerFormat.getVarint(body);
+            blockLengths[i] = ContainerFormat.getVarint(body);
+            if(frameLengths[i] < 0 || blockLengths[i] < 0 || !body.hasRemaining()) {
+                return false;
+            }
+            keys[i] = body.get() != 0;
+            ++size;
+        }
+        checked = body.remaining() >= ContainerFormat.FOOTER_SIZE + Integer.BYTES;
+        if(checked) {
+            checksum = body.getInt();
+        }
+        return true;
+    }
+
+    boolean checked() {
+        return checked;
+    }
+
+    int checksum() {
+        return checksum;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int frameLength(int block) {
+        return frameLengths[block];
+    }
+
+    int blockLength(int block) {
+        return blockLengths[block];
+    }
+
+    boolean key(int block) {
+        return keys[block];
+    }
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final CodingFrame frame;
+    private int[] frameLengths = new int[INITIAL_CAPACITY];
+    private int[] blockLengths = new int[INITIAL_CAPACITY];
+    private boolean[] keys = new boolean[INITIAL_CAPACITY];
+    private int size;
+    private long indexOffset = ContainerFormat.HEADER_SIZE;
+    private final Checksum streamChecksum = BlockChecksum.create();
+    private boolean checked;
+    private int checksum;
+}
@@ -0,0 +1,164 @@
+import java.nio.ByteBuffer;
+
+class CodingFrame {
+    CodingFrame(int symbols) {
+        frequencies = new int[symbols];
+    }
+
+    static int maxHeaderSize(int symbols) {
+        return 1 + 2 * ContainerFormat.MAX_VARINT_SIZE + Integer.BYTES + symbols / 8 + symbols * ContainerFormat.MAX_VARINT_SIZE;
+    }
+
+    static boolean isStream(int kind) {
+        return kind == ADAPTIVE_STREAM || kind == CONTEXT_STREAM;
+    }
+
+    void write(ByteBuffer buffer) {
+        buffer.put((byte) (kind | (checked ? CHECKSUM_FLAG : 0) | (key ? KEY_FLAG : 0)));
+        if(isStream(kind)) {
+            if(kind == CONTEXT_STREAM) {
+                buffer.put((byte) order);
+            }
+            return;
+        }
+        ContainerFormat.putVarint(buffer, blockLength);
+        ContainerFormat.putVarint(buffer, codeLength);
+        if(checked) {
+            buffer.putInt(checksum);
+        }
+        if(kind == CONTEXT_MODEL) {
+            buffer.put((byte) order);
+        }
+        if(kind != STATIC_MODEL) {
+            return;
+        }
+        for(int i = 0; i < frequencies.length; i += 8) {
+            int mask = 0;
+            for(int j = 0; j < 8; ++j) {
+                if(frequencies[i + j] != 0) {
+                    mask |= 1 << j;
+                }
+            }
+            buffer.put((byte) mask);
+        }
+        for(int frequency : frequencies) {
+            if(frequency != 0) {
+                ContainerFormat.putVarint(buffer, frequency);
+            }
+        }
+    }
+
+    int read(ByteBuffer buffer) {
+        int start = buffer.position();
+        int status = parse(buffer);
+        if(status != READ_OK) {
+            buffer.position(start);
+        }
+        return status;
+    }
+
+    private int parse(ByteBuffer buffer) {
+        if(!buffer.hasRemaining()) {
+            return READ_INCOMPLETE;
+        }
+        byte header = buffer.get();
+        kind = header & ~(CHECKSUM_FLAG | KEY_FLAG);
+        checked = (header & CHECKSUM_FLAG) != 0;
+        key = (header & KEY_FLAG) != 0;
+        if(kind < STATIC_MODEL || kind > INDEX) {
+            return invalid("kind");
+        }
+        if(isStream(kind)) {
+            if(kind == CONTEXT_STREAM) {
+                if(!buffer.hasRemaining()) {
+                    return READ_INCOMPLETE;
+                }
+                order = buffer.get();
+            }
+            return READ_OK;
+        }
+        int fieldStart = buffer.position();
+        blockLength = ContainerFormat.getVarint(buffer);
+        if(blockLength < 0 && truncated(buffer, fieldStart)) {
+            return READ_INCOMPLETE;
+        }
+        if(blockLength < 0 || blockLength > ContainerFormat.MAX_BLOCK_SIZE) {
+            return invalid("block length");
+        }
+        fieldStart = buffer.position();
+        codeLength = ContainerFormat.getVarint(buffer);
+        if(codeLength < 0 && truncated(buffer, fieldStart)) {
+            return READ_INCOMPLETE;
+        }
+        if(codeLength < 0) {
+            return invalid("code length");
+        }
+        if(checked) {
+            if(buffer.remaining() < Integer.BYTES) {
+                return READ_INCOMPLETE;
+            }
+            checksum = buffer.getInt();
+        }
+        if(kind == CONTEXT_MODEL) {
+            if(!buffer.hasRemaining()) {
+                return READ_INCOMPLETE;
+            }
+            order = buffer.get();
+        }
+        if(kind != STATIC_MODEL) {
+            return READ_OK;
+        }
+        if(buffer.remaining() < frequencies.length / 8) {
+            return READ_INCOMPLETE;
+        }
+        int maskPosition = buffer.position();
+        buffer.position(maskPosition + frequencies.length / 8);
+        for(int i = 0; i < frequencies.length; ++i) {
+            frequencies[i] = 0;
+            if((buffer.get(maskPosition + i / 8) & (1 << (i % 8))) != 0) {
+                fieldStart = buffer.position();
+                frequencies[i] = ContainerFormat.getVarint(buffer);
+                if(frequencies[i] < 0 && truncated(buffer, fieldStart)) {
+                    return READ_INCOMPLETE;
+                }
+                if(frequencies[i] < 1 || frequencies[i] > MAX_FREQUENCY) {
+                    return invalid("frequency of symbol " + i);
+                }
+            }
+        }
+        return READ_OK;
+    }
+
+    private int invalid(String field) {
+        invalidField = field;
+        return READ_INVALID;
+    }
+
+    private static boolean truncated(ByteBuffer buffer, int fieldStart) {
+        return !buffer.hasRemaining() && (buffer.position() == fieldStart || buffer.get(buffer.position() - 1) < 0);
+    }
+
+    static final int STATIC_MODEL = 0;
+    static final int PREVIOUS_MODEL = 1;
+    static final int ADAPTIVE_MODEL = 2;
+    static final int CONTEXT_MODEL = 3;
+    static final int ADAPTIVE_STREAM = 4;
+    static final int CONTEXT_STREAM = 5;
+    static final int INDEX = ContainerFormat.INDEX_FRAME;
+    static final int CHECKSUM_FLAG = 0x40;
+    static final int KEY_FLAG = 0x20;
+    static final int MAX_FREQUENCY = 1 << 16;
+    static final int READ_OK = 0;
+    static final int READ_INCOMPLETE = 1;
+    static final int READ_INVALID = 2;
+
+    int kind;
+    int order;
+    int blockLength;
+    int codeLength;
+    boolean checked;
+    boolean key;
+    int checksum;
+    String invalidField;
+    final int[] frequencies;
+}
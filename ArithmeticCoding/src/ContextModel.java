@@ -0,0 +1,147 @@
+import java.util.Arrays;
+
+class ContextModel {
+    ContextModel(int order) {
+        this.order = order;
+        lowOrder = Math.min(order - 1, 1);
+        lowBits = 8 * lowOrder + NIBBLE_BITS;
+        highBits = Math.min(8 * order + NIBBLE_BITS, TABLE_BITS);
+        low = new char[1 << lowBits];
+        high = new char[1 << highBits];
+        weights = new int[2 * NODES];
+        reset();
+    }
+
+    void reset() {
+        Arrays.fill(low, (char) HALF);
+        Arrays.fill(high, (char) HALF);
+        Arrays.fill(weights, INITIAL_WEIGHT);
+        history = 0;
+        lowContext = 0;
+        highContext = 0;
+        setBases(0);
+    }
+
+    int order() {
+        return order;
+    }
+
+    void encode(RangeEncoder encoder, int symbol) {
+        int node = 1;
+        int local = 1;
+        for(int i = 7; i >= 0; --i) {
+            int bit = (symbol >>> i) & 1;
+            encoder.encodeBit(bit, predict(node, local));
+            update(node, bit);
+            node = (node << 1) | bit;
+            local = (local << 1) | bit;
+            if(i == 4) {
+                setBases(node);
+                local = 1;
+            }
+        }
+        updateContexts(symbol);
+    }
+
+    int decode(RangeDecoder decoder) {
+        int node = 1;
+        int local = 1;
+        for(int i = 7; i >= 0; --i) {
+            int bit = decoder.decodeBit(predict(node, local));
+            update(node, bit);
+            node = (node << 1) | bit;
+            local = (local << 1) | bit;
+            if(i == 4) {
+                setBases(node);
+                local = 1;
+            }
+        }
+        int symbol = node & 0xFF;
+        updateContexts(symbol);
+        return symbol;
+    }
+
+    private int predict(int node, int local) {
+        lowIndex = lowBase + local;
+        highIndex = highBase + local;
+        lowStretch = STRETCH[low[lowIndex] >>> 4];
+        highStretch = STRETCH[high[highIndex] >>> 4];
+        int weight = node << 1;
+        int dot = (lowStretch * weights[weight] + highStretch * weights[weight + 1]) >> 16;
+        prediction = SQUASH[Math.max(-2047, Math.min(2047, dot)) + 2048];
+        return prediction;
+    }
+
+    private void update(int node, int bit) {
+        int error = ((bit << 12) - prediction) * LEARNING_RATE;
+        int weight = node << 1;
+        weights[weight] += (lowStretch * error + 0x8000) >> 16;
+        weights[weight + 1] += (highStretch * error + 0x8000) >> 16;
+        int target = (bit << 16) - bit;
+        int p = low[lowIndex];
+        low[lowIndex] = (char) (p + ((target - p) >> ADAPTATION_SHIFT));
+        p = high[highIndex];
+        high[highIndex] = (char) (p + ((target - p) >> ADAPTATION_SHIFT));
+    }
+
+    private void setBases(int node) {
+        int nibble = node == 0 ? 0 : (node & 0xF) + 1 << 4;
+        lowBase = (int) (lowContext << NIBBLE_BITS | nibble);
+        long key = highContext << NIBBLE_BITS | nibble;
+        if(highBits < 8 * order + NIBBLE_BITS) {
+            key *= HASH_MULTIPLIER;
+            key = (key ^ (key >>> 29)) * HASH_MULTIPLIER;
+            highBase = (int) (key >>> (64 - highBits)) & ~0xF;
+        } else {
+            highBase = (int) key;
+        }
+    }
+
+    private void updateContexts(int symbol) {
+        history = (history << 8) | symbol;
+        lowContext = history & ((1L << (8 * lowOrder)) - 1);
+        highContext = history & ((1L << (8 * order)) - 1);
+        setBases(0);
+    }
+
+    static final int MAX_ORDER = 6;
+
+    private static final int NODES = 256;
+    private static final int NIBBLE_BITS = 9;
+    private static final int TABLE_BITS = 22;
+    private static final int HALF = 1 << 15;
+    private static final int INITIAL_WEIGHT = 1 << 15;
+    private static final int LEARNING_RATE = 6;
+    private static final int ADAPTATION_SHIFT = 4;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final int[] SQUASH = new int[4096];
+    private static final int[] STRETCH = new int[4096];
+    static {
+        for(int i = 0; i < 4096; ++i) {
+            int p = (int) Math.round(4096 / (1 + Math.exp(-(i - 2048) / 256.0)));
+            SQUASH[i] = Math.max(1, Math.min(4095, p));
+        }
+        for(int p = 0; p < 4096; ++p) {
+            double q = Math.max(1, Math.min(4095, p)) / 4096.0;
+            STRETCH[p] = (int) Math.round(Math.log(q / (1 - q)) * 256);
+        }
+    }
+
+    private final int order;
+    private final int lowOrder;
+    private final int lowBits;
+    private final int highBits;
+    private final char[] low;
+    private final char[] high;
+    private final int[] weights;
+    private long lowContext;
+    private long highContext;
+    private long history;
+    private int lowBase;
+    private int highBase;
+    private int lowIndex;
+    private int highIndex;
+    private int lowStretch;
+    private int highStretch;
+    private int prediction;
+}
@@ -0,0 +1,80 @@
+import java.nio.ByteBuffer;
+
+class FrameDecoder {
+    FrameDecoder(int symbols, int maxTotalFrequency) {
+        staticModel = new StaticModel(symbols, maxTotalFrequency);
+        adaptiveModel = new AdaptiveModel(symbols, maxTotalFrequency);
+    }
+
+    boolean accept(CodingFrame frame) {
+        switch (frame.kind) {
+            case CodingFrame.STATIC_MODEL: {
+                if(!staticModel.isValid(frame.frequencies)) {
+                    return false;
+                }
+                modelFrequencies = frame.frequencies.clone();
+                return true;
+            }
+            case CodingFrame.PREVIOUS_MODEL: {
+                return modelFrequencies != null;
+            }
+            case CodingFrame.ADAPTIVE_MODEL: {
+                if(frame.key) {
+                    adaptiveModel.reset();
+                }
+                return true;
+            }
+            case CodingFrame.CONTEXT_MODEL: {
+                if(frame.order < 1 || frame.order > ContextModel.MAX_ORDER) {
+                    return false;
+                }
+                if(contextModel == null || contextModel.order() != frame.order) {
+                    contextModel = new ContextModel(frame.order);
+                } else if(frame.key) {
+                    contextModel.reset();
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int[] model() {
+        return modelFrequencies;
+    }
+
+    static boolean independent(int kind) {
+        return kind == CodingFrame.STATIC_MODEL || kind == CodingFrame.PREVIOUS_MODEL;
+    }
+
+    ByteBuffer decode(int kind, int blockLength, int[] model, StaticModel target, byte[] data, int offset, int length) {
+        RangeDecoder decoder = decoders.get();
+        decoder.start(data, offset, length);
+        ByteBuffer block = pool.acquire(blockLength);
+        byte[] decodingBytes = block.array();
+        if(kind == CodingFrame.ADAPTIVE_MODEL) {
+            for(int i = 0; i < blockLength; ++i) {
+                int symbol = adaptiveModel.findSymbol(decoder.decodeFreq(adaptiveModel.total()));
+                decodingBytes[i] = (byte) symbol;
+                decoder.decodeUpdate(adaptiveModel.foundCumFrequency(), adaptiveModel.frequency(symbol));
+                adaptiveModel.update(symbol);
+            }
+        } else if(kind == CodingFrame.CONTEXT_MODEL) {
+            for(int i = 0; i < blockLength; ++i) {
+                decodingBytes[i] = (byte) contextModel.decode(decoder);
+            }
+        } else {
+            StaticModel decodingModel = target != null ? target : staticModel;
+            decodingModel.set(model);
+            decodingModel.decode(decoder, decodingBytes, blockLength);
+        }
+        return block;
+    }
+
+    private final BufferPool pool = BufferPool.shared();
+    private static final ThreadLocal<RangeDecoder> decoders = ThreadLocal.withInitial(RangeDecoder::new);
+    private final StaticModel staticModel;
+    private final AdaptiveModel adaptiveModel;
+    private ContextModel contextModel;
+    private int[] modelFrequencies;
+}
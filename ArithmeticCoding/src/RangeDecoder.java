@@ -0,0 +1,70 @@
+class RangeDecoder {
+    RangeDecoder() {
+    }
+
+    RangeDecoder(byte[] data, int offset, int length) {
+        start(data, offset, length);
+    }
+
+    void start(byte[] data, int offset, int length) {
+        feed(data, offset, length);
+        range = RangeEncoder.MAX_RANGE;
+        code = 0;
+        for(int i = 0; i < 4; ++i) {
+            code = (code << 8) | next();
+        }
+    }
+
+    void feed(byte[] data, int offset, int length) {
+        this.data = data;
+        position = offset;
+        end = offset + length;
+    }
+
+    int position() {
+        return position;
+    }
+
+    int decodeFreq(int totFreq) {
+        range /= totFreq;
+        long value = code / range;
+        return (int) Math.min(value, totFreq - 1);
+    }
+
+    void decodeUpdate(int cumFreq, int freq) {
+        code -= cumFreq * range;
+        range *= freq;
+        normalize();
+    }
+
+    int decodeBit(int probability) {
+        long bound = (range >>> RangeEncoder.PROBABILITY_BITS) * probability;
+        int bit = (int) ((code - bound) >>> 63);
+        long mask = bit - 1;
+        code -= bound & mask;
+        range = ((range - bound) & mask) | (bound & ~mask);
+        normalize();
+        return bit;
+    }
+
+    private void normalize() {
+        while(range < RangeEncoder.TOP) {
+            code = ((code << 8) | next()) & RangeEncoder.MAX_RANGE;
+            range <<= 8;
+        }
+    }
+
+    private int next() {
+        if(position < end) {
+            return data[position++] & 0xFF;
+        }
+        ++position;
+        return 0;
+    }
+
+    private byte[] data;
+    private int position;
+    private int end;
+    private long range;
+    private long code;
+}
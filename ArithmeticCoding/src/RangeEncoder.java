@@ -0,0 +1,94 @@
+import java.util.Arrays;
+
+class RangeEncoder {
+    RangeEncoder(int capacity) {
+        buffer = new byte[Math.max(capacity, MIN_CAPACITY)];
+        reset();
+    }
+
+    void reset() {
+        low = 0;
+        range = MAX_RANGE;
+        cache = 0;
+        cacheSize = 1;
+        size = 0;
+        first = true;
+    }
+
+    void encode(int cumFreq, int freq, int totFreq) {
+        range /= totFreq;
+        low += cumFreq * range;
+        range *= freq;
+        while(range < TOP) {
+            range <<= 8;
+            shiftLow();
+        }
+    }
+
+    void encodeBit(int bit, int probability) {
+        long bound = (range >>> PROBABILITY_BITS) * probability;
+        long mask = bit - 1;
+        low += bound & mask;
+        range = ((range - bound) & mask) | (bound & ~mask);
+        while(range < TOP) {
+            range <<= 8;
+            shiftLow();
+        }
+    }
+
+    void discard() {
+        size = 0;
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void finish() {
+        for(int i = 0; i < 5; ++i) {
+            shiftLow();
+        }
+    }
+
+    private void shiftLow() {
+        if(low < 0xFF000000L || low > MAX_RANGE) {
+            int carry = (int) (low >>> 32);
+            int temp = cache;
+            do {
+                put((byte) (temp + carry));
+                temp = 0xFF;
+            } while(--cacheSize != 0);
+            cache = (int) ((low >>> 24) & 0xFF);
+        }
+        ++cacheSize;
+        low = (low & 0x00FFFFFFL) << 8;
+    }
+
+    private void put(byte b) {
+        if(first) {
+            first = false;
+            return;
+        }
+        if(size == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        buffer[size++] = b;
+    }
+
+    static final long TOP = 1L << 24;
+    static final long MAX_RANGE = 0xFFFFFFFFL;
+    static final int PROBABILITY_BITS = 12;
+    private static final int MIN_CAPACITY = 16;
+
+    private long low;
+    private long range;
+    private int cache;
+    private long cacheSize;
+    private byte[] buffer;
+    private int size;
+    private boolean first;
+}
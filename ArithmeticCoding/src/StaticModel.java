@@ -0,0 +1,119 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+class StaticModel {
+    StaticModel(int symbols, int maxTotal) {
+        this.symbols = symbols;
+        this.maxTotal = maxTotal;
+        histogram = new int[symbols];
+        frequencies = new int[symbols];
+        cumFrequencies = new int[symbols + 1];
+        symbolLookup = new byte[maxTotal];
+    }
+
+    void count(byte[] data, int offset, int length) {
+        Arrays.fill(histogram, 0);
+        int slices = Math.min(Runtime.getRuntime().availableProcessors(), length / PARALLEL_COUNT_SLICE);
+        if(slices < 2) {
+            count(data, offset, offset + length, histogram);
+            return;
+        }
+        int[][] partial = new int[slices][symbols];
+        int sliceLength = (length + slices - 1) / slices;
+        IntStream.range(0, slices).parallel().forEach(i -> count(data, offset + i * sliceLength,
+                offset + Math.min(length, (i + 1) * sliceLength), partial[i]));
+        for(int[] part : partial) {
+            for(int i = 0; i < symbols; ++i) {
+                histogram[i] += part[i];
+            }
+        }
+    }
+
+    private static void count(byte[] data, int from, int to, int[] counts) {
+        for(int i = from; i < to; ++i) {
+            ++counts[data[i] & 0xFF];
+        }
+    }
+
+    int histogram(int symbol) {
+        return histogram[symbol];
+    }
+
+    void scale(int length, int minFrequency) {
+        int maxFrequency = maxTotal - symbols;
+        for(int i = 0; i < symbols; ++i) {
+            int freq = histogram[i];
+            if(length > maxFrequency && freq != 0) {
+                freq = Math.max(1, (int) ((long) freq * maxFrequency / length));
+            }
+            frequencies[i] = Math.max(minFrequency, freq);
+        }
+        setCumFrequencies();
+        source = null;
+    }
+
+    boolean set(int[] model) {
+        if(model == source) {
+            return true;
+        }
+        if(!isValid(model)) {
+            return false;
+        }
+        System.arraycopy(model, 0, frequencies, 0, symbols);
+        setCumFrequencies();
+        for(int i = 0; i < symbols; ++i) {
+            Arrays.fill(symbolLookup, cumFrequencies[i], cumFrequencies[i + 1], (byte) i);
+        }
+        source = model;
+        return true;
+    }
+
+    boolean isValid(int[] model) {
+        long total = 0;
+        for(int frequency : model) {
+            total += frequency;
+        }
+        return total != 0 && total <= maxTotal;
+    }
+
+    boolean isEmpty() {
+        return totalFrequency == 0;
+    }
+
+    void copyFrequencies(int[] destination) {
+        System.arraycopy(frequencies, 0, destination, 0, symbols);
+    }
+
+    void encode(RangeEncoder encoder, byte[] data, int offset, int length) {
+        for(int i = offset; i < offset + length; ++i) {
+            int symbol = data[i] & 0xFF;
+            encoder.encode(cumFrequencies[symbol], frequencies[symbol], totalFrequency);
+        }
+    }
+
+    void decode(RangeDecoder decoder, byte[] data, int length) {
+        for(int i = 0; i < length; ++i) {
+            int symbol = symbolLookup[decoder.decodeFreq(totalFrequency)] & 0xFF;
+            data[i] = (byte) symbol;
+            decoder.decodeUpdate(cumFrequencies[symbol], frequencies[symbol]);
+        }
+    }
+
+    private void setCumFrequencies() {
+        for(int i = 0; i < symbols; ++i) {
+            cumFrequencies[i + 1] = cumFrequencies[i] + frequencies[i];
+        }
+        totalFrequency = cumFrequencies[symbols];
+    }
+
+    private static final int PARALLEL_COUNT_SLICE = 1 << 20;
+
+    private final int symbols;
+    private final int maxTotal;
+    private final int[] histogram;
+    private final int[] frequencies;
+    private final int[] cumFrequencies;
+    private final byte[] symbolLookup;
+    private int totalFrequency;
+    private int[] source;
+}
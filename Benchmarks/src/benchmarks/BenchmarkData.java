@@ -0,0 +1,127 @@
+package benchmarks;
+
+import ru.spbstu.pipeline.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.logging.Logger;
+
+class BenchmarkData {
+    static byte[] generate(String profile, int size) {
+        Random random = new Random(SEED);
+        byte[] data = new byte[size];
+        switch (profile) {
+            case "random": {
+                random.nextBytes(data);
+                break;
+            }
+            case "text": {
+                int i = 0;
+                while(i < size) {
+                    String word = WORDS[random.nextInt(WORDS.length)];
+                    for(int j = 0; j < word.length() && i < size; ++j) {
+                        data[i++] = (byte) word.charAt(j);
+                    }
+                    if(i < size) {
+                        data[i++] = (byte) (random.nextInt(12) == 0 ? '\n' : ' ');
+                    }
+                }
+                break;
+            }
+            case "skewed": {
+                for(int i = 0; i < size; ++i) {
+                    data[i] = (byte) (random.nextInt(16) == 0 ? random.nextInt(256) : random.nextInt(4));
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException(profile);
+        }
+        return data;
+    }
+
+    static File writeFile(File directory, String name, byte[] data) throws IOException {
+        File file = new File(directory, name);
+        Files.write(file.toPath(), data);
+        return file;
+    }
+
+    static File writeConfig(File directory, String name, String... lines) throws IOException {
+        File file = new File(directory, name);
+        try(PrintWriter writer = new PrintWriter(file)) {
+            for(String line : lines) {
+                writer.println(line);
+            }
+        }
+        return file;
+    }
+
+    static File createDirectory() throws IOException {
+        File directory = Files.createTempDirectory("pipeline-bench").toFile();
+        directory.deleteOnExit();
+        return directory;
+    }
+
+    static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if(files != null) {
+            for(File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    static class BlockProducer implements IProducer {
+        @Override
+        public TYPE[] getOutputTypes() {
+            return new TYPE[] {TYPE.BYTE};
+        }
+
+        @Override
+        public IMediator getMediator(TYPE type) {
+            return () -> block;
+        }
+
+        byte[] block;
+    }
+
+    static class CountingConsumer implements IConsumer {
+        CountingConsumer(IProducer producer) {
+            mediator = producer.getMediator(TYPE.BYTE);
+        }
+
+        @Override
+        public RC execute() {
+            Object data = mediator.getData();
+            if(data != null) {
+                bytes += ((byte[]) data).length;
+                last = (byte[]) data;
+            }
+            return RC.CODE_SUCCESS;
+        }
+
+        private final IMediator mediator;
+        long bytes;
+        byte[] last;
+    }
+
+    static <T> T stage(String name, Class<T> type) {
+        try {
+            return type.cast(Class.forName(name).getConstructor(Logger.class).newInstance(LOGGER));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create " + name, e);
+        }
+    }
+
+    static final Logger LOGGER = Logger.getLogger("benchmarks");
+
+    private static final long SEED = 42;
+    private static final String[] WORDS = {"the", "of", "and", "to", "in", "a", "is", "that", "for", "it",
+            "as", "was", "with", "be", "by", "on", "not", "he", "this", "are", "or", "his", "from", "at",
+            "which", "but", "have", "an", "had", "they", "you", "were", "their", "one", "all", "we", "can",
+            "pipeline", "reader", "writer", "coding", "block", "config", "InputFile", "Size", "Mode"};
+}
@@ -0,0 +1,127 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.spbstu.pipeline.IExecutor;
+import ru.spbstu.pipeline.RC;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CodingBenchmark {
+    @Param({"random", "text", "skewed"})
+    public String profile;
+
+    @Param({"4096", "65536", "1048576"})
+    public int blockSize;
+
+    @Param({"Block", "Adaptive", "Context"})
+    public String model;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        public long plainBytes;
+        public long codedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            plainBytes = 0;
+            codedBytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        directory = BenchmarkData.createDirectory();
+        byte[] sample = BenchmarkData.generate(profile, SAMPLE_SIZE);
+        blocks = new ArrayList<>();
+        for(int offset = 0; offset < sample.length; offset += blockSize) {
+            blocks.add(Arrays.copyOfRange(sample, offset, Math.min(sample.length, offset + blockSize)));
+        }
+        encodeConfig = BenchmarkData.writeConfig(directory, "encode.txt", "Mode = RangeEncode", "Model = " + model);
+        decodeConfig = BenchmarkData.writeConfig(directory, "decode.txt", "Mode = RangeDecode");
+
+        CodingStage stage = new CodingStage(encodeConfig);
+        frames = new ArrayList<>();
+        for(byte[] block : blocks) {
+            stage.execute(block);
+            frames.add(stage.consumer.last);
+        }
+        stage.execute(null);
+        frames.add(stage.consumer.last);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() {
+        BenchmarkData.delete(directory);
+    }
+
+    @Setup(Level.Invocation)
+    public void createStages() {
+        encoder = new CodingStage(encodeConfig);
+        decoder = new CodingStage(decodeConfig);
+    }
+
+    @Benchmark
+    public void encode(Bytes counters, Blackhole blackhole) {
+        for(byte[] block : blocks) {
+            blackhole.consume(encoder.execute(block));
+        }
+        blackhole.consume(encoder.execute(null));
+        counters.plainBytes += SAMPLE_SIZE;
+        counters.codedBytes += encoder.consumer.bytes;
+    }
+
+    @Benchmark
+    public void decode(Bytes counters, Blackhole blackhole) {
+        for(byte[] frame : frames) {
+            blackhole.consume(decoder.execute(frame));
+        }
+        RC rc = decoder.execute(null);
+        if(rc != RC.CODE_SUCCESS || decoder.consumer.bytes != SAMPLE_SIZE) {
+            throw new IllegalStateException("Decoded " + decoder.consumer.bytes + " bytes: " + rc);
+        }
+        counters.plainBytes += SAMPLE_SIZE;
+    }
+
+    static class CodingStage {
+        CodingStage(File config) {
+            coder = BenchmarkData.stage("ArithmeticCoding", IExecutor.class);
+            coder.setProducer(producer);
+            if(coder.setConfig(config.getPath()) != RC.CODE_SUCCESS) {
+                throw new IllegalStateException("Invalid config " + config);
+            }
+            consumer = new BenchmarkData.CountingConsumer(coder);
+            coder.setConsumer(consumer);
+        }
+
+        RC execute(byte[] block) {
+            producer.block = block;
+            return coder.execute();
+        }
+
+        final IExecutor coder;
+        final BenchmarkData.BlockProducer producer = new BenchmarkData.BlockProducer();
+        final BenchmarkData.CountingConsumer consumer;
+    }
+
+    private static final int SAMPLE_SIZE = 4 << 20;
+
+    private File directory;
+    private ArrayList<byte[]> blocks;
+    private ArrayList<byte[]> frames;
+    private File encodeConfig;
+    private File decodeConfig;
+    private CodingStage encoder;
+    private CodingStage decoder;
+}
@@ -0,0 +1,96 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ConversionBenchmark {
+    @Param({"scalar", "selected"})
+    public String implementation;
+
+    @Param({"toChars", "fromChars", "toShorts", "fromShorts"})
+    public String conversion;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        public long plainBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            plainBytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void prepare() throws Throwable {
+        Class<?> conversions = Class.forName("BlockConversions");
+        Object instance = conversions.getMethod(implementation).invoke(null);
+        System.out.println("Conversions: " + conversions.getMethod("name").invoke(instance));
+
+        bytes = BenchmarkData.generate("text", BLOCK_SIZE);
+        chars = new char[BLOCK_SIZE];
+        shorts = new short[BLOCK_SIZE / 2];
+        Class<?> array;
+        switch (conversion) {
+            case "toChars":
+                array = char[].class;
+                source = bytes;
+                target = chars;
+                length = BLOCK_SIZE;
+                break;
+            case "fromChars":
+                array = char[].class;
+                source = chars;
+                target = bytes;
+                length = BLOCK_SIZE;
+                break;
+            case "toShorts":
+                array = short[].class;
+                source = bytes;
+                target = shorts;
+                length = BLOCK_SIZE / 2;
+                break;
+            case "fromShorts":
+                array = short[].class;
+                source = shorts;
+                target = bytes;
+                length = BLOCK_SIZE / 2;
+                break;
+            default:
+                throw new IllegalArgumentException(conversion);
+        }
+        Class<?> from = conversion.startsWith("to") ? byte[].class : array;
+        Class<?> to = conversion.startsWith("to") ? array : byte[].class;
+        convert = MethodHandles.publicLookup()
+                .findVirtual(conversions, conversion, MethodType.methodType(void.class, from, int.class, to, int.class, int.class))
+                .bindTo(instance)
+                .asType(MethodType.methodType(void.class, Object.class, int.class, Object.class, int.class, int.class));
+    }
+
+    @Benchmark
+    public Object convert(Bytes counters) throws Throwable {
+        convert.invokeExact(source, 0, target, 0, length);
+        counters.plainBytes += BLOCK_SIZE;
+        return target;
+    }
+
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    private MethodHandle convert;
+    private byte[] bytes;
+    private char[] chars;
+    private short[] shorts;
+    private Object source;
+    private Object target;
+    private int length;
+}
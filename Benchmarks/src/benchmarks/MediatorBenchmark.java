@@ -0,0 +1,122 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.spbstu.pipeline.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MediatorBenchmark {
+    @Param({"Stream", "Mapped"})
+    public String mode;
+
+    @Param({"BYTE", "CHAR", "SHORT", "VIEW"})
+    public String type;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        public long plainBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            plainBytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        directory = BenchmarkData.createDirectory();
+        input = BenchmarkData.writeFile(directory, "input.bin", BenchmarkData.generate("text", FILE_SIZE));
+        config = BenchmarkData.writeConfig(directory, "reader.txt", "Size = " + BLOCK_SIZE, "Mode = " + mode);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() {
+        BenchmarkData.delete(directory);
+    }
+
+    @Setup(Level.Invocation)
+    public void open() throws IOException {
+        stream = new FileInputStream(input);
+        reader = BenchmarkData.stage("Reader", IReader.class);
+        reader.setInputStream(stream);
+        if(reader.setConfig(config.getPath()) != RC.CODE_SUCCESS) {
+            throw new IllegalStateException("Invalid config " + config);
+        }
+        consumer = new PullingConsumer(reader, type);
+        reader.setConsumer(consumer);
+    }
+
+    @TearDown(Level.Invocation)
+    public void close() throws IOException {
+        stream.close();
+    }
+
+    @Benchmark
+    public Object read(Bytes counters) {
+        RC rc = reader.execute();
+        if(rc != RC.CODE_SUCCESS || consumer.bytes != FILE_SIZE) {
+            throw new IllegalStateException("Read " + consumer.bytes + " bytes: " + rc);
+        }
+        counters.plainBytes += FILE_SIZE;
+        return consumer.last;
+    }
+
+    static class PullingConsumer implements IConsumer {
+        PullingConsumer(IProducer producer, String type) {
+            view = type.equals("VIEW");
+            mediator = producer.getMediator(view ? TYPE.BYTE : TYPE.valueOf(type));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public RC execute() {
+            if(view) {
+                ByteBuffer buffer = ((Supplier<ByteBuffer>) mediator).get();
+                if(buffer != null) {
+                    bytes += buffer.remaining();
+                    last = buffer;
+                }
+                return RC.CODE_SUCCESS;
+            }
+            Object data = mediator.getData();
+            if(data instanceof byte[]) {
+                bytes += ((byte[]) data).length;
+            } else if(data instanceof char[]) {
+                bytes += ((char[]) data).length;
+            } else if(data instanceof short[]) {
+                bytes += ((short[]) data).length * 2;
+            }
+            if(data != null) {
+                last = data;
+            }
+            return RC.CODE_SUCCESS;
+        }
+
+        private final IMediator mediator;
+        private final boolean view;
+        long bytes;
+        Object last;
+    }
+
+    private static final int FILE_SIZE = 16 << 20;
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    private File directory;
+    private File input;
+    private File config;
+    private FileInputStream stream;
+    private IReader reader;
+    private PullingConsumer consumer;
+}
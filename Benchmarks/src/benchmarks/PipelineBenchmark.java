@@ -0,0 +1,95 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.spbstu.pipeline.RC;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class PipelineBenchmark {
+    @Param({"text", "skewed"})
+    public String profile;
+
+    @Param({"Block", "Adaptive", "Context"})
+    public String model;
+
+    @Param({"Sequential", "Threaded"})
+    public String execution;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        public long plainBytes;
+        public long codedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            plainBytes = 0;
+            codedBytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        directory = BenchmarkData.createDirectory();
+        File input = BenchmarkData.writeFile(directory, "input.bin", BenchmarkData.generate(profile, FILE_SIZE));
+        output = new File(directory, "output.bin");
+        File reader = BenchmarkData.writeConfig(directory, "reader.txt", "Size = " + BLOCK_SIZE);
+        File writer = BenchmarkData.writeConfig(directory, "writer.txt");
+        File coding = BenchmarkData.writeConfig(directory, "coding.txt",
+                "Mode = RangeEncode",
+                "Model = " + model);
+        File manager = BenchmarkData.writeConfig(directory, "manager.txt",
+                "InputFile = " + input.getPath(),
+                "ConfigForReader = " + reader.getPath(),
+                "OutputFile = " + output.getPath(),
+                "ConfigForWriter = " + writer.getPath(),
+                "ExecutorName = ArithmeticCoding = " + coding.getPath(),
+                "Order = Reader = ArithmeticCoding = Writer",
+                "Execution = " + execution);
+        config = manager.getPath();
+
+        try {
+            Class<?> managerClass = Class.forName("Manager");
+            constructor = managerClass.getDeclaredConstructor(String.class);
+            constructor.setAccessible(true);
+            work = managerClass.getDeclaredMethod("work");
+            work.setAccessible(true);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load Manager", e);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() {
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public void encodeFile(Bytes counters) throws ReflectiveOperationException {
+        RC rc = (RC) work.invoke(constructor.newInstance(config));
+        if(rc != RC.CODE_SUCCESS) {
+            throw new IllegalStateException("Pipeline failed: " + rc);
+        }
+        counters.plainBytes += FILE_SIZE;
+        counters.codedBytes += output.length();
+    }
+
+    private static final int FILE_SIZE = 8 << 20;
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    private File directory;
+    private File output;
+    private String config;
+    private Constructor<?> constructor;
+    private Method work;
+}
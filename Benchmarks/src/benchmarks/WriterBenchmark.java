@@ -0,0 +1,92 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.spbstu.pipeline.IWriter;
+import ru.spbstu.pipeline.RC;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class WriterBenchmark {
+    @Param({"Stream", "Gather"})
+    public String mode;
+
+    @Param({"8", "4096", "65536"})
+    public int blockSize;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        public long plainBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            plainBytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        directory = BenchmarkData.createDirectory();
+        block = BenchmarkData.generate("text", blockSize);
+        config = BenchmarkData.writeConfig(directory, "writer.txt", "Mode = " + mode);
+        output = new File(directory, "output.bin");
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() {
+        BenchmarkData.delete(directory);
+    }
+
+    @Setup(Level.Invocation)
+    public void open() throws IOException {
+        stream = new FileOutputStream(output);
+        writer = BenchmarkData.stage("Writer", IWriter.class);
+        writer.setOutputStream(stream);
+        if(writer.setConfig(config.getPath()) != RC.CODE_SUCCESS) {
+            throw new IllegalStateException("Invalid config " + config);
+        }
+        writer.setProducer(producer);
+    }
+
+    @TearDown(Level.Invocation)
+    public void close() throws IOException {
+        stream.close();
+    }
+
+    @Benchmark
+    public void write(Bytes counters) {
+        int blocks = OUTPUT_SIZE / blockSize;
+        producer.block = block;
+        for(int i = 0; i < blocks; ++i) {
+            check(writer.execute());
+        }
+        producer.block = null;
+        check(writer.execute());
+        counters.plainBytes += (long) blocks * blockSize;
+    }
+
+    private static void check(RC rc) {
+        if(rc != RC.CODE_SUCCESS) {
+            throw new IllegalStateException("Write failed: " + rc);
+        }
+    }
+
+    private static final int OUTPUT_SIZE = 8 << 20;
+
+    private final BenchmarkData.BlockProducer producer = new BenchmarkData.BlockProducer();
+    private File directory;
+    private File config;
+    private File output;
+    private byte[] block;
+    private FileOutputStream stream;
+    private IWriter writer;
+}
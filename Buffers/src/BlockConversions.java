@@ -0,0 +1,106 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+public abstract class BlockConversions {
+    public static BlockConversions selected() {
+        return SELECTED;
+    }
+
+    public static BlockConversions scalar() {
+        return SCALAR;
+    }
+
+    public static void bytesToChars(byte[] src, int srcOffset, char[] dst, int dstOffset, int length) {
+        SELECTED.toChars(src, srcOffset, dst, dstOffset, length);
+    }
+
+    public static void charsToBytes(char[] src, int srcOffset, byte[] dst, int dstOffset, int length) {
+        SELECTED.fromChars(src, srcOffset, dst, dstOffset, length);
+    }
+
+    public static void bytesToShorts(byte[] src, int srcOffset, short[] dst, int dstOffset, int length) {
+        SELECTED.toShorts(src, srcOffset, dst, dstOffset, length);
+    }
+
+    public static void shortsToBytes(short[] src, int srcOffset, byte[] dst, int dstOffset, int length) {
+        SELECTED.fromShorts(src, srcOffset, dst, dstOffset, length);
+    }
+
+    public abstract String name();
+
+    public abstract void toChars(byte[] src, int srcOffset, char[] dst, int dstOffset, int length);
+
+    public abstract void fromChars(char[] src, int srcOffset, byte[] dst, int dstOffset, int length);
+
+    public abstract void toShorts(byte[] src, int srcOffset, short[] dst, int dstOffset, int length);
+
+    public abstract void fromShorts(short[] src, int srcOffset, byte[] dst, int dstOffset, int length);
+
+    private static BlockConversions select() {
+        if(Boolean.getBoolean(SCALAR_PROPERTY)) {
+            return SCALAR;
+        }
+        try {
+            BlockConversions vector = (BlockConversions) Class.forName(VECTOR_CLASS).getConstructor().newInstance();
+            return agrees(vector, SCALAR) ? vector : new BufferConversions();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return new BufferConversions();
+        }
+    }
+
+    private static boolean agrees(BlockConversions candidate, BlockConversions reference) {
+        byte[] bytes = new byte[PROBE_LENGTH * 2 + 1];
+        char[] chars = new char[PROBE_LENGTH];
+        short[] shorts = new short[PROBE_LENGTH];
+        for(int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte) (i * 151);
+        }
+        for(int i = 0; i < PROBE_LENGTH; ++i) {
+            chars[i] = (char) (i * 40503);
+            shorts[i] = (short) (i * 40503);
+        }
+        char[] expectedChars = new char[PROBE_LENGTH];
+        char[] actualChars = new char[PROBE_LENGTH];
+        reference.toChars(bytes, 1, expectedChars, 0, PROBE_LENGTH);
+        candidate.toChars(bytes, 1, actualChars, 0, PROBE_LENGTH);
+        short[] expectedShorts = new short[PROBE_LENGTH];
+        short[] actualShorts = new short[PROBE_LENGTH];
+        reference.toShorts(bytes, 1, expectedShorts, 0, PROBE_LENGTH);
+        candidate.toShorts(bytes, 1, actualShorts, 0, PROBE_LENGTH);
+        byte[] expectedBytes = new byte[bytes.length];
+        byte[] actualBytes = new byte[bytes.length];
+        reference.fromChars(chars, 0, expectedBytes, 1, PROBE_LENGTH);
+        candidate.fromChars(chars, 0, actualBytes, 1, PROBE_LENGTH);
+        if(!Arrays.equals(expectedChars, actualChars) || !Arrays.equals(expectedShorts, actualShorts)
+                || !Arrays.equals(expectedBytes, actualBytes)) {
+            return false;
+        }
+        reference.fromShorts(shorts, 0, expectedBytes, 1, PROBE_LENGTH);
+        candidate.fromShorts(shorts, 0, actualBytes, 1, PROBE_LENGTH);
+        return Arrays.equals(expectedBytes, actualBytes);
+    }
+
+    private static final String SCALAR_PROPERTY = "pipeline.conversions.scalar";
+    private static final String VECTOR_CLASS = "VectorConversions";
+    private static final int PROBE_LENGTH = 259;
+    private static final BlockConversions SCALAR = new ScalarConversions();
+    private static final BlockConversions SELECTED = select();
+}
+
+class BufferConversions extends ScalarConversions {
+    @Override
+    public String name() {
+        return "buffer";
+    }
+
+    @Override
+    public void toShorts(byte[] src, int srcOffset, short[] dst, int dstOffset, int length) {
+        ByteBuffer.wrap(src, srcOffset, 2 * length).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(dst, dstOffset, length);
+    }
+
+    @Override
+    public void fromShorts(short[] src, int srcOffset, byte[] dst, int dstOffset, int length) {
+        ByteBuffer.wrap(dst, dstOffset, 2 * length).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().put(src, srcOffset, length);
+    }
+}
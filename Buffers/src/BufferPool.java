@@ -0,0 +1,110 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BufferPool {
+    public BufferPool(long retainedBytesPerClass) {
+        classes = new SizeClass[MAX_CLASS_BITS + 1];
+        for(int bits = MIN_CLASS_BITS; bits <= MAX_CLASS_BITS; ++bits) {
+            long slots = retainedBytesPerClass >> bits;
+            classes[bits] = new SizeClass((int) Math.max(MIN_SLOTS, Math.min(MAX_SLOTS, slots)));
+        }
+    }
+
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    public ByteBuffer acquire(int length) {
+        int bits = classBits(length);
+        if(bits > MAX_CLASS_BITS) {
+            allocations.incrementAndGet();
+            return ByteBuffer.allocate(length);
+        }
+        ByteBuffer buffer = classes[bits].poll();
+        if(buffer == null) {
+            allocations.incrementAndGet();
+            buffer = ByteBuffer.allocate(1 << bits);
+        }
+        buffer.clear();
+        buffer.limit(length);
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        return buffer;
+    }
+
+    public ByteBuffer grow(ByteBuffer buffer, int length) {
+        if(buffer != null && buffer.capacity() >= length) {
+            buffer.clear();
+            buffer.limit(length);
+            return buffer;
+        }
+        release(buffer);
+        return acquire(length);
+    }
+
+    public void release(ByteBuffer buffer) {
+        if(buffer == null || !buffer.hasArray() || buffer.isReadOnly() || buffer.arrayOffset() != 0) {
+            return;
+        }
+        int capacity = buffer.capacity();
+        if(Integer.bitCount(capacity) != 1) {
+            return;
+        }
+        int bits = Integer.numberOfTrailingZeros(capacity);
+        if(bits < MIN_CLASS_BITS || bits > MAX_CLASS_BITS) {
+            return;
+        }
+        classes[bits].offer(buffer);
+    }
+
+    public long allocations() {
+        return allocations.get();
+    }
+
+    private static int classBits(int length) {
+        if(length <= 1 << MIN_CLASS_BITS) {
+            return MIN_CLASS_BITS;
+        }
+        return 32 - Integer.numberOfLeadingZeros(length - 1);
+    }
+
+    private static final int MIN_CLASS_BITS = 6;
+    private static final int MAX_CLASS_BITS = 26;
+    private static final int MIN_SLOTS = 2;
+    private static final int MAX_SLOTS = 64;
+    private static final long SHARED_RETAINED_BYTES = 16L << 20;
+    private static final BufferPool SHARED = new BufferPool(SHARED_RETAINED_BYTES);
+
+    private final SizeClass[] classes;
+    private final AtomicLong allocations = new AtomicLong();
+}
+
+class SizeClass {
+    SizeClass(int slots) {
+        buffers = new ByteBuffer[slots];
+    }
+
+    synchronized ByteBuffer poll() {
+        if(size == 0) {
+            return null;
+        }
+        ByteBuffer buffer = buffers[--size];
+        buffers[size] = null;
+        return buffer;
+    }
+
+    synchronized void offer(ByteBuffer buffer) {
+        if(size == buffers.length) {
+            return;
+        }
+        for(int i = 0; i < size; ++i) {
+            if(buffers[i] == buffer) {
+                return;
+            }
+        }
+        buffers[size++] = buffer;
+    }
+
+    private final ByteBuffer[] buffers;
+    private int size;
+}
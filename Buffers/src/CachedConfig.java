@@ -0,0 +1,17 @@
+import java.io.File;
+
+public class CachedConfig<T> {
+    public CachedConfig(long modified, long length, T params) {
+        this.modified = modified;
+        this.length = length;
+        this.params = params;
+    }
+
+    public boolean isCurrent(File file) {
+        return modified == file.lastModified() && length == file.length();
+    }
+
+    public final long modified;
+    public final long length;
+    public final T params;
+}
@@ -0,0 +1,129 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+public class ContainerFormat {
+    public static byte[] header() {
+        byte[] header = Arrays.copyOf(MAGIC, HEADER_SIZE);
+        header[MAGIC.length] = VERSION;
+        return header;
+    }
+
+    public static boolean isHeader(byte[] data, int offset) {
+        return isMagic(data, offset) && data[offset + MAGIC.length] == VERSION;
+    }
+
+    public static boolean isMagic(byte[] data, int offset) {
+        for(int i = 0; i < MAGIC.length; ++i) {
+            if(data[offset + i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static boolean startsLikeHeader(byte first) {
+        return first == MAGIC[0];
+    }
+
+    public static void putFooter(ByteBuffer buffer, long indexOffset) {
+        buffer.putLong(indexOffset);
+        buffer.put(MAGIC);
+    }
+
+    public static long indexOffset(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if(size < HEADER_SIZE + FOOTER_SIZE) {
+            return -1;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+        readFully(channel, footer, size - FOOTER_SIZE);
+        long indexOffset = footer.getLong(0);
+        if(!isHeader(header.array(), 0) || !isMagic(footer.array(), Long.BYTES)
+                || indexOffset < HEADER_SIZE || indexOffset >= size) {
+            return -1;
+        }
+        return indexOffset;
+    }
+
+    public static long[] frameBoundaries(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long indexOffset = indexOffset(channel);
+        if(indexOffset < 0) {
+            return null;
+        }
+
+        ByteBuffer index = ByteBuffer.allocate((int) (size - indexOffset));
+        readFully(channel, index, indexOffset);
+        index.flip();
+        if((index.get() & KIND_MASK) != INDEX_FRAME) {
+            return null;
+        }
+        getVarint(index);
+        getVarint(index);
+        int count = getVarint(index);
+        if(count < 0 || count > index.remaining()) {
+            return null;
+        }
+        long[] boundaries = new long[count + 3];
+        boundaries[1] = HEADER_SIZE;
+        for(int i = 0; i < count; ++i) {
+            int frameLength = getVarint(index);
+            if(frameLength < 0 || getVarint(index) < 0 || !index.hasRemaining()) {
+                return null;
+            }
+            index.get();
+            boundaries[i + 2] = boundaries[i + 1] + frameLength;
+        }
+        if(boundaries[count + 1] != indexOffset) {
+            return null;
+        }
+        boundaries[count + 2] = size;
+        return boundaries;
+    }
+
+    public static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int start = buffer.position();
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, position + buffer.position() - start) < 0) {
+                throw new EOFException("Unexpected end of file");
+            }
+        }
+    }
+
+    public static void putVarint(ByteBuffer buffer, int value) {
+        while((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        for(int shift = 0; shift < 7 * MAX_VARINT_SIZE; shift += 7) {
+            if(!buffer.hasRemaining()) {
+                return -1;
+            }
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if(b >= 0) {
+                return value;
+            }
+        }
+        return -1;
+    }
+
+    public static final int HEADER_SIZE = 5;
+    public static final int FOOTER_SIZE = Long.BYTES + 4;
+    public static final int INDEX_FRAME = 6;
+    public static final int MAX_BLOCK_SIZE = 1 << 26;
+    public static final int KIND_MASK = 0x1F;
+    public static final int MAX_VARINT_SIZE = 5;
+    private static final byte[] MAGIC = {'A', 'R', 'C', 'X'};
+    private static final byte VERSION = 1;
+}
@@ -0,0 +1,38 @@
+class ScalarConversions extends BlockConversions {
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public void toChars(byte[] src, int srcOffset, char[] dst, int dstOffset, int length) {
+        for(int i = 0; i < length; ++i) {
+            dst[dstOffset + i] = (char) src[srcOffset + i];
+        }
+    }
+
+    @Override
+    public void fromChars(char[] src, int srcOffset, byte[] dst, int dstOffset, int length) {
+        for(int i = 0; i < length; ++i) {
+            dst[dstOffset + i] = (byte) src[srcOffset + i];
+        }
+    }
+
+    @Override
+    public void toShorts(byte[] src, int srcOffset, short[] dst, int dstOffset, int length) {
+        for(int i = 0; i < length; ++i) {
+            int j = srcOffset + 2 * i;
+            dst[dstOffset + i] = (short) ((src[j] & 0xFF) | (src[j + 1] << 8));
+        }
+    }
+
+    @Override
+    public void fromShorts(short[] src, int srcOffset, byte[] dst, int dstOffset, int length) {
+        for(int i = 0; i < length; ++i) {
+            int j = dstOffset + 2 * i;
+            short value = src[srcOffset + i];
+            dst[j] = (byte) value;
+            dst[j + 1] = (byte) (value >> 8);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteOrder;
+
+public class VectorConversions extends ScalarConversions {
+    public VectorConversions() {
+        if(SHORTS.length() < MIN_LANES) {
+            throw new UnsupportedOperationException("vector shape " + SHORTS.vectorShape() + " is too narrow");
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector";
+    }
+
+    @Override
+    public void toChars(byte[] src, int srcOffset, char[] dst, int dstOffset, int length) {
+        int bound = SHORTS.loopBound(length);
+        for(int i = 0; i < bound; i += SHORTS.length()) {
+            ByteVector.fromArray(BYTES, src, srcOffset + i).convertShape(VectorOperators.B2S, SHORTS, 0)
+                    .reinterpretAsShorts().intoCharArray(dst, dstOffset + i);
+        }
+        super.toChars(src, srcOffset + bound, dst, dstOffset + bound, length - bound);
+    }
+
+    @Override
+    public void fromChars(char[] src, int srcOffset, byte[] dst, int dstOffset, int length) {
+        int bound = SHORTS.loopBound(length);
+        for(int i = 0; i < bound; i += SHORTS.length()) {
+            ShortVector.fromCharArray(SHORTS, src, srcOffset + i).convertShape(VectorOperators.S2B, BYTES, 0)
+                    .reinterpretAsBytes().intoArray(dst, dstOffset + i);
+        }
+        super.fromChars(src, srcOffset + bound, dst, dstOffset + bound, length - bound);
+    }
+
+    @Override
+    public void toShorts(byte[] src, int srcOffset, short[] dst, int dstOffset, int length) {
+        int bound = SHORTS.loopBound(length);
+        for(int i = 0; i < bound; i += SHORTS.length()) {
+            ShortVector.fromByteArray(SHORTS, src, srcOffset + 2 * i, ByteOrder.LITTLE_ENDIAN).intoArray(dst, dstOffset + i);
+        }
+        super.toShorts(src, srcOffset + 2 * bound, dst, dstOffset + bound, length - bound);
+    }
+
+    @Override
+    public void fromShorts(short[] src, int srcOffset, byte[] dst, int dstOffset, int length) {
+        int bound = SHORTS.loopBound(length);
+        for(int i = 0; i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, src, srcOffset + i).intoByteArray(dst, dstOffset + 2 * i, ByteOrder.LITTLE_ENDIAN);
+        }
+        super.fromShorts(src, srcOffset + bound, dst, dstOffset + 2 * bound, length - bound);
+    }
+
+    private static final int MIN_LANES = 8;
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES = VectorSpecies.of(byte.class, VectorShape.forBitSize(SHORTS.vectorBitSize() / 2));
+}
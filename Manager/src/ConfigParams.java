@@ -0,0 +1,16 @@
+class ConfigParams {
+    public String inputFile;
+    public String outputFile;
+    public String configForReader;
+    public String configForWriter;
+    public StringPair[] Executors;
+    public boolean threaded;
+    public int queueSize = 16;
+    public ManagerGrammarWords metrics;
+    public long metricsInterval;
+    public String inputDirectory;
+    public String outputDirectory;
+    public int batchWorkers = Runtime.getRuntime().availableProcessors();
+    public long maxInFlight = 64L << 20;
+    public boolean fusion = true;
+}
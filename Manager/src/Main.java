@@ -2,6 +2,13 @@ import ru.spbstu.pipeline.RC;
 
 public class Main {
     public static void main(String[] args) {
+        if(args.length > 1 && args[0].equals("--service")) {
+            RC rc = new ManagerService(args[1]).run();
+            if(rc != RC.CODE_SUCCESS) {
+                System.out.println("Error: " + rc);
+            }
+            return;
+        }
         if(args.length > 0) {
             Manager manager = new Manager(args[0]);
             RC rc = manager.work();
@@ -1,7 +1,6 @@
 import ru.spbstu.pipeline.*;
 
 import java.io.*;
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
@@ -14,24 +13,46 @@ public class Manager {
         filename = str;
     }
 
+    Manager(String str, String input, String output) {
+        filename = str;
+        inputFile = input;
+        outputFile = output;
+    }
+
     RC work() {
-        String[] lines = read();
-        TreeMap<String, String> tokens = SyntacticManagerParser.parse(lines);
-        ConfigParams cfgP = new ConfigParams();
-        RC rc = SemanticManagerParser.parse(tokens, cfgP);
-        if(rc != RC.CODE_SUCCESS) {
-            logger.log(Level.SEVERE, "Error: ", rc);
-            return rc;
+        RC rc;
+        ConfigParams cfgP = PipelineFactory.config(filename);
+        if(cfgP == null) {
+            File file = new File(filename);
+            long modified = file.lastModified();
+            long length = file.length();
+            String[] lines = read();
+            TreeMap<String, String> tokens = SyntacticManagerParser.parse(lines);
+            cfgP = new ConfigParams();
+            rc = SemanticManagerParser.parse(tokens, cfgP);
+            if(rc != RC.CODE_SUCCESS) {
+                logger.log(Level.SEVERE, "Error: ", rc);
+                return rc;
+            }
+            PipelineFactory.cache(filename, modified, length, cfgP);
         }
 
-        try (FileInputStream fis = new FileInputStream(new File(cfgP.inputFile))) {
+        if(cfgP.inputDirectory != null && inputFile == null) {
+            return new ManagerBatch(cfgP, logger).run();
+        }
+        return run(cfgP, inputFile != null ? inputFile : cfgP.inputFile, outputFile != null ? outputFile : cfgP.outputFile);
+    }
+
+    static RC run(ConfigParams cfgP, String input, String output) {
+        RC rc;
+        try (FileInputStream fis = new FileInputStream(new File(input))) {
             IReader reader = null;
-            try (FileOutputStream fos = new FileOutputStream(new File(cfgP.outputFile))) {
+            try (FileOutputStream fos = new FileOutputStream(new File(output))) {
                 IWriter writer = null;
 
                 try {
-                    reader = (IReader) Class.forName(cfgP.Executors[0].executor).getConstructor(Logger.class).newInstance(logger);
-                    writer = (IWriter) Class.forName(cfgP.Executors[cfgP.Executors.length - 1].executor).getConstructor(Logger.class).newInstance(logger);
+                    reader = PipelineFactory.create(cfgP.Executors[0].executor, IReader.class, logger);
+                    writer = PipelineFactory.create(cfgP.Executors[cfgP.Executors.length - 1].executor, IWriter.class, logger);
                     reader.setProducer(null);
                     writer.setConsumer(null);
                     reader.setInputStream(fis);
@@ -50,33 +71,75 @@ public class Manager {
 
                     IExecutor[] exe = new IExecutor[cfgP.Executors.length - 2];
                     for (int i = 1; i < cfgP.Executors.length - 1; ++i) {
-                        exe[i - 1] = (IExecutor) Class.forName(cfgP.Executors[i].executor).getConstructor(Logger.class).newInstance(logger);
+                        exe[i - 1] = PipelineFactory.create(cfgP.Executors[i].executor, IExecutor.class, logger);
                     }
 
-                    if (exe.length > 0) {
-                        reader.setConsumer(exe[0]);
-                        exe[0].setProducer(reader);
-                        writer.setProducer(exe[exe.length - 1]);
-                        exe[exe.length - 1].setConsumer(writer);
-
-                        for (int i = 0; i < exe.length; ++i) {
-                            if (i > 0) {
-                                exe[i].setProducer(exe[i - 1]);
-                            }
-                            if (i < exe.length - 1) {
-                                exe[i].setConsumer(exe[i + 1]);
-                            }
-                            rc = exe[i].setConfig(cfgP.Executors[i + 1].config);
-                            if (rc != RC.CODE_SUCCESS) {
-                                logger.log(Level.SEVERE, "Error: ", rc);
-                                return rc;
-                            }
+                    IPipelineStep[] stages = new IPipelineStep[cfgP.Executors.length];
+                    String[] names = new String[cfgP.Executors.length];
+                    stages[0] = reader;
+                    System.arraycopy(exe, 0, stages, 1, exe.length);
+                    stages[stages.length - 1] = writer;
+                    for (int i = 0; i < names.length; ++i) {
+                        names[i] = cfgP.Executors[i].executor;
+                    }
+                    TYPE[] plan = TypeNegotiation.plan(stages, names, logger);
+                    if (plan == null) {
+                        return RC.CODE_FAILED_PIPELINE_CONSTRUCTION;
+                    }
+                    boolean[] fused = cfgP.threaded && cfgP.fusion
+                            ? PipelineFusion.plan(stages, plan, names, Runtime.getRuntime().availableProcessors(), logger)
+                            : new boolean[plan.length];
+
+                    PipelineMetrics metrics = cfgP.metrics == null ? null : new PipelineMetrics(logger);
+                    IPipelineStep[] steps = new IPipelineStep[stages.length];
+                    for (int i = 0; i < stages.length; ++i) {
+                        steps[i] = meter(metrics, names[i], stages[i]);
+                    }
+
+                    ArrayList<PipelineChannel> channels = new ArrayList<>();
+                    for (int i = 0; i < plan.length; ++i) {
+                        rc = connect(steps[i], steps[i + 1], plan[i], fused[i], cfgP, channels);
+                        if (rc != RC.CODE_SUCCESS) {
+                            logger.log(Level.SEVERE, "Error: ", rc);
+                            return rc;
+                        }
+                    }
+                    for (int i = 1; i < steps.length - 1; ++i) {
+                        rc = steps[i].setConfig(cfgP.Executors[i].config);
+                        if (rc != RC.CODE_SUCCESS) {
+                            logger.log(Level.SEVERE, "Error: ", rc);
+                            return rc;
                         }
                     }
 
-                    reader.execute();
+                    for (int i = 0; i < channels.size(); ++i) {
+                        channels.get(i).start("pipeline-stage-" + (i + 1));
+                        if (metrics != null) {
+                            metrics.register("pipeline-stage-" + (i + 1), channels.get(i));
+                        }
+                    }
+                    if (metrics != null) {
+                        metrics.start(cfgP.metricsInterval);
+                    }
+                    rc = ((IConsumer) steps[0]).execute();
+                    for (PipelineChannel channel : channels) {
+                        if (rc != RC.CODE_SUCCESS) {
+                            channel.cancel();
+                        }
+                        RC channelRc = channel.join();
+                        if (rc == RC.CODE_SUCCESS) {
+                            rc = channelRc;
+                        }
+                    }
+                    if (metrics != null) {
+                        metrics.stop(cfgP.metrics == ManagerGrammarWords.JSON);
+                    }
+                    if (rc != RC.CODE_SUCCESS) {
+                        logger.log(Level.SEVERE, "Error: ", rc);
+                        return rc;
+                    }
 
-                } catch (ClassNotFoundException | InstantiationException | NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+                } catch (ReflectiveOperationException | ClassCastException e) {
                     logger.log(Level.SEVERE, "Exception: ", e);
                     return RC.CODE_FAILED_PIPELINE_CONSTRUCTION;
                 }
@@ -92,6 +155,27 @@ public class Manager {
         return RC.CODE_SUCCESS;
     }
 
+    private static RC connect(IPipelineStep producer, IPipelineStep consumer, TYPE type, boolean fused, ConfigParams cfgP, ArrayList<PipelineChannel> channels) {
+        IProducer typed = new TypedProducer((IProducer) producer, type);
+        if (cfgP.threaded && !fused) {
+            PipelineChannel channel = new PipelineChannel(cfgP.queueSize, logger);
+            producer.setConsumer(channel);
+            channel.setProducer(typed);
+            channel.setConsumer((IConsumer) consumer);
+            channels.add(channel);
+            return consumer.setProducer(channel);
+        }
+        producer.setConsumer((IConsumer) consumer);
+        return consumer.setProducer(typed);
+    }
+
+    private static IPipelineStep meter(PipelineMetrics metrics, String name, IPipelineStep step) {
+        if (metrics == null) {
+            return step;
+        }
+        return metrics.wrap(name, step);
+    }
+
     private String[] read() {
         ArrayList<String> lines = new ArrayList<>();
         try(BufferedReader reader = new BufferedReader(new FileReader(new File(filename)))) {
@@ -106,6 +190,8 @@ public class Manager {
     }
 
     private final String filename;
+    private String inputFile;
+    private String outputFile;
     private static final Logger logger = Logger.getLogger(Manager.class.getName());
 }
 
@@ -114,13 +200,24 @@ class SyntacticManagerParser {
         TreeMap<String, String> tokens = new TreeMap<>();
         ManagerGrammar grammar = new ManagerGrammar();
         for(String str : configData) {
-            str = str.replaceAll("\\s+", "");
+            str = removeWhitespace(str);
             String key = str.substring(0, str.indexOf(grammar.delimiter()));
             String value = str.substring(str.indexOf(grammar.delimiter()) + grammar.delimiter().length());
             tokens.put(key, value);
         }
         return tokens;
     }
+
+    private static String removeWhitespace(String str) {
+        StringBuilder builder = new StringBuilder(str.length());
+        for(int i = 0; i < str.length(); ++i) {
+            char c = str.charAt(i);
+            if(!Character.isWhitespace(c)) {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
 }
 
 class SemanticManagerParser {
@@ -143,15 +240,77 @@ class SemanticManagerParser {
 
                 String config = str.substring(str.indexOf(grammar.delimiter()) + grammar.delimiter().length());
                 executors.put(executor, config);
+            } else if(entry.getKey().equals(grammar.token(ManagerGrammarWords.EXECUTION.ordinal()))) {
+                if(entry.getValue().equals(grammar.token(ManagerGrammarWords.THREADED.ordinal()))) {
+                    cfgP.threaded = true;
+                } else if(!entry.getValue().equals(grammar.token(ManagerGrammarWords.SEQUENTIAL.ordinal()))) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+            } else if(entry.getKey().equals(grammar.token(ManagerGrammarWords.FUSION.ordinal()))) {
+                if(entry.getValue().equals(grammar.token(ManagerGrammarWords.NONE.ordinal()))) {
+                    cfgP.fusion = false;
+                } else if(!entry.getValue().equals(grammar.token(ManagerGrammarWords.AUTO.ordinal()))) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+            } else if(entry.getKey().equals(grammar.token(ManagerGrammarWords.QUEUE_SIZE.ordinal()))) {
+                try {
+                    cfgP.queueSize = Integer.parseInt(entry.getValue());
+                } catch (NumberFormatException e) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+                if(cfgP.queueSize < 1) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+            } else if(entry.getKey().equals(grammar.token(ManagerGrammarWords.METRICS.ordinal()))) {
+                if(entry.getValue().equals(grammar.token(ManagerGrammarWords.SUMMARY.ordinal()))) {
+                    cfgP.metrics = ManagerGrammarWords.SUMMARY;
+                } else if(entry.getValue().equals(grammar.token(ManagerGrammarWords.JSON.ordinal()))) {
+                    cfgP.metrics = ManagerGrammarWords.JSON;
+                } else {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+            } else if(entry.getKey().equals(grammar.token(ManagerGrammarWords.METRICS_INTERVAL.ordinal()))) {
+                try {
+                    cfgP.metricsInterval = Long.parseLong(entry.getValue());
+                } catch (NumberFormatException e) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+                if(cfgP.metricsInterval < 1) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+            } else if(entry.getKey().equals(grammar.token(ManagerGrammarWords.INPUT_DIRECTORY.ordinal()))) {
+                cfgP.inputDirectory = entry.getValue();
+            } else if(entry.getKey().equals(grammar.token(ManagerGrammarWords.OUTPUT_DIRECTORY.ordinal()))) {
+                cfgP.outputDirectory = entry.getValue();
+            } else if(entry.getKey().equals(grammar.token(ManagerGrammarWords.BATCH_WORKERS.ordinal()))) {
+                try {
+                    cfgP.batchWorkers = Integer.parseInt(entry.getValue());
+                } catch (NumberFormatException e) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+                if(cfgP.batchWorkers < 1) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+            } else if(entry.getKey().equals(grammar.token(ManagerGrammarWords.MAX_IN_FLIGHT.ordinal()))) {
+                try {
+                    cfgP.maxInFlight = Long.parseLong(entry.getValue());
+                } catch (NumberFormatException e) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+                if(cfgP.maxInFlight < 1) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
             } else if(entry.getKey().equals(grammar.token(ManagerGrammarWords.ORDER.ordinal()))) {
                 String order = entry.getValue();
-                order = order.replaceAll("\\s+", "");
                 String[] os = order.split(grammar.delimiter());
                 orderExecutors.addAll(Arrays.asList(os));
             } else {
                 return RC.CODE_CONFIG_SEMANTIC_ERROR;
             }
         }
+        if((cfgP.inputDirectory == null) != (cfgP.outputDirectory == null)) {
+            return RC.CODE_CONFIG_SEMANTIC_ERROR;
+        }
         cfgP.Executors = new StringPair[orderExecutors.size()];
         for(int i = 0; i < cfgP.Executors.length; ++i) {
             cfgP.Executors[i] = new StringPair();
@@ -164,24 +323,11 @@ class SemanticManagerParser {
     }
 }
 
-class StringPair {
-    public String executor;
-    public String config;
-}
-
-class ConfigParams {
-    public String inputFile;
-    public String outputFile;
-    public String configForReader;
-    public String configForWriter;
-    public StringPair[] Executors;
-}
-
 class ManagerGrammar extends BaseGrammar {
     ManagerGrammar() {
         super(aTokens);
     }
-    private static final String[] aTokens = new String[6];
+    private static final String[] aTokens = new String[21];
     static {
         aTokens[0] = "InputFile";
         aTokens[1] = "ConfigForReader";
@@ -189,15 +335,20 @@ class ManagerGrammar extends BaseGrammar {
         aTokens[3] = "ConfigForWriter";
         aTokens[4] = "ExecutorName";
         aTokens[5] = "Order";
+        aTokens[6] = "Execution";
+        aTokens[7] = "Sequential";
+        aTokens[8] = "Threaded";
+        aTokens[9] = "QueueSize";
+        aTokens[10] = "Metrics";
+        aTokens[11] = "Summary";
+        aTokens[12] = "Json";
+        aTokens[13] = "MetricsInterval";
+        aTokens[14] = "InputDirectory";
+        aTokens[15] = "OutputDirectory";
+        aTokens[16] = "BatchWorkers";
+        aTokens[17] = "MaxInFlight";
+        aTokens[18] = "Fusion";
+        aTokens[19] = "Auto";
+        aTokens[20] = "None";
     }
 }
-
-enum ManagerGrammarWords {
-    INPUT,
-    INPUT_CONFIG,
-    OUTPUT,
-    OUTPUT_CONFIG,
-    EXECUTOR,
-    ORDER
-}
-
@@ -0,0 +1,173 @@
+import ru.spbstu.pipeline.RC;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+class ManagerBatch {
+    ManagerBatch(ConfigParams cfgP, Logger logger) {
+        this.cfgP = cfgP;
+        this.logger = logger;
+    }
+
+    RC run() {
+        RC rc = checkCodingParams();
+        if(rc != RC.CODE_SUCCESS) {
+            return rc;
+        }
+        ArrayList<BatchFile> files = new ArrayList<>();
+        Path outputDirectory = Paths.get(cfgP.outputDirectory);
+        try {
+            Path pattern = Paths.get(cfgP.inputDirectory);
+            Path directory = pattern;
+            String glob = "*";
+            if(!Files.isDirectory(pattern)) {
+                directory = pattern.getParent() == null ? Paths.get(".") : pattern.getParent();
+                glob = pattern.getFileName().toString();
+            }
+            Files.createDirectories(outputDirectory);
+            if(Files.isSameFile(directory, outputDirectory)) {
+                logger.log(Level.SEVERE, "Error: output directory must differ from input directory");
+                return RC.CODE_INVALID_ARGUMENT;
+            }
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+                for(Path path : stream) {
+                    if(Files.isRegularFile(path)) {
+                        files.add(new BatchFile(path, Files.size(path)));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Exception: ", e);
+            return RC.CODE_INVALID_INPUT_STREAM;
+        }
+        files.sort((a, b) -> Long.compare(b.size, a.size));
+
+        long start = System.nanoTime();
+        ByteBudget budget = new ByteBudget(cfgP.maxInFlight);
+        ForkJoinPool pool = new ForkJoinPool(cfgP.batchWorkers);
+        ArrayList<Future<RC>> results = new ArrayList<>(files.size());
+        try {
+            for(BatchFile file : files) {
+                long reserved = budget.acquire(file.size);
+                String input = file.path.toString();
+                String output = outputDirectory.resolve(file.path.getFileName()).toString();
+                results.add(pool.submit(() -> {
+                    try {
+                        RC fileRc = Manager.run(cfgP, input, output);
+                        if(fileRc != RC.CODE_SUCCESS) {
+                            logger.log(Level.SEVERE, "Error: " + input + ": ", fileRc);
+                        }
+                        return fileRc;
+                    } finally {
+                        budget.release(reserved);
+                    }
+                }));
+            }
+            int failed = 0;
+            for(Future<RC> result : results) {
+                RC fileRc;
+                try {
+                    fileRc = result.get();
+                } catch (ExecutionException e) {
+                    logger.log(Level.SEVERE, "Exception: ", e.getCause());
+                    fileRc = RC.CODE_FAILED_PIPELINE_CONSTRUCTION;
+                }
+                if(fileRc != RC.CODE_SUCCESS) {
+                    ++failed;
+                    if(rc == RC.CODE_SUCCESS) {
+                        rc = fileRc;
+                    }
+                }
+            }
+            logger.log(Level.INFO, "Batch: " + files.size() + " files, " + failed + " failed, "
+                    + (System.nanoTime() - start) / 1000000 + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rc = RC.CODE_FAILED_PIPELINE_CONSTRUCTION;
+        } finally {
+            pool.shutdown();
+        }
+        return rc;
+    }
+
+    private RC checkCodingParams() {
+        for(int i = 1; i < cfgP.Executors.length - 1; ++i) {
+            String config = cfgP.Executors[i].config;
+            String mode = null;
+            String params = null;
+            try {
+                for(String line : Files.readAllLines(Paths.get(config))) {
+                    int delimiter = line.indexOf('=');
+                    if(delimiter < 0) {
+                        continue;
+                    }
+                    String key = line.substring(0, delimiter).trim();
+                    if(key.equals(MODE)) {
+                        mode = line.substring(delimiter + 1).trim();
+                    } else if(key.equals(CODING_PARAMS)) {
+                        params = line.substring(delimiter + 1).trim();
+                    }
+                }
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Exception: ", e);
+                return RC.CODE_INVALID_ARGUMENT;
+            }
+            if(params != null && (ENCODE.equals(mode) || DECODE.equals(mode))) {
+                logger.log(Level.SEVERE, "Error: " + cfgP.Executors[i].executor + " " + mode + " shares CodingParams "
+                        + params + " across every input and cannot run in batch mode, use Range" + mode + " instead");
+                return RC.CODE_CONFIG_SEMANTIC_ERROR;
+            }
+        }
+        return RC.CODE_SUCCESS;
+    }
+
+    private static final String MODE = "Mode";
+    private static final String CODING_PARAMS = "CodingParams";
+    private static final String ENCODE = "Encode";
+    private static final String DECODE = "Decode";
+
+    private final ConfigParams cfgP;
+    private final Logger logger;
+}
+
+class BatchFile {
+    BatchFile(Path path, long size) {
+        this.path = path;
+        this.size = size;
+    }
+
+    final Path path;
+    final long size;
+}
+
+class ByteBudget {
+    ByteBudget(long capacity) {
+        this.capacity = capacity;
+    }
+
+    synchronized long acquire(long bytes) throws InterruptedException {
+        long reserved = Math.min(Math.max(bytes, 1), capacity);
+        while(inFlight + reserved > capacity) {
+            wait();
+        }
+        inFlight += reserved;
+        return reserved;
+    }
+
+    synchronized void release(long bytes) {
+        inFlight -= bytes;
+        notifyAll();
+    }
+
+    private final long capacity;
+    private long inFlight;
+}
@@ -0,0 +1,23 @@
+enum ManagerGrammarWords {
+    INPUT,
+    INPUT_CONFIG,
+    OUTPUT,
+    OUTPUT_CONFIG,
+    EXECUTOR,
+    ORDER,
+    EXECUTION,
+    SEQUENTIAL,
+    THREADED,
+    QUEUE_SIZE,
+    METRICS,
+    SUMMARY,
+    JSON,
+    METRICS_INTERVAL,
+    INPUT_DIRECTORY,
+    OUTPUT_DIRECTORY,
+    BATCH_WORKERS,
+    MAX_IN_FLIGHT,
+    FUSION,
+    AUTO,
+    NONE
+}
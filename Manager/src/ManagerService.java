@@ -0,0 +1,319 @@
+import ru.spbstu.pipeline.*;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+class ManagerService {
+    ManagerService(String str) {
+        filename = str;
+    }
+
+    RC run() {
+        String[] lines = read();
+        if(lines == null) {
+            return RC.CODE_CONFIG_GRAMMAR_ERROR;
+        }
+        TreeMap<String, String> tokens = SyntacticServiceParser.parse(lines);
+        cfgP = new ConfigServiceParams();
+        RC rc = SemanticServiceParser.parse(tokens, cfgP);
+        if(rc != RC.CODE_SUCCESS) {
+            logger.log(Level.SEVERE, "Error: ", rc);
+            return rc;
+        }
+
+        jobs = new ThreadPoolExecutor(cfgP.workers, cfgP.workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cfgP.queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "manager-job");
+                    thread.setDaemon(true);
+                    return thread;
+                }, (runnable, executor) -> {
+                    if(executor.isShutdown()) {
+                        throw new RejectedExecutionException("service is shutting down");
+                    }
+                    runnable.run();
+                });
+
+        try {
+            Thread listener = null;
+            if(cfgP.port >= 0) {
+                server = new ServerSocket(cfgP.port, 0, InetAddress.getLoopbackAddress());
+                logger.log(Level.INFO, "Listening on port " + server.getLocalPort());
+                listener = new Thread(this::listen, "manager-listener");
+                listener.start();
+            }
+            if(cfgP.jobDirectory != null) {
+                watch(Paths.get(cfgP.jobDirectory));
+            }
+            if(listener != null) {
+                listener.join();
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Exception: ", e);
+            rc = RC.CODE_INVALID_INPUT_STREAM;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            jobs.shutdown();
+        }
+        try {
+            jobs.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return rc;
+    }
+
+    private void watch(Path directory) throws IOException, InterruptedException {
+        try (WatchService watcher = directory.getFileSystem().newWatchService()) {
+            this.watcher = watcher;
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE);
+            try (DirectoryStream<Path> pending = Files.newDirectoryStream(directory, "*" + JOB_SUFFIX)) {
+                for(Path job : pending) {
+                    submit(job);
+                }
+            }
+            while(running) {
+                WatchKey key = watcher.take();
+                for(WatchEvent<?> event : key.pollEvents()) {
+                    if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        continue;
+                    }
+                    Path job = directory.resolve((Path) event.context());
+                    if(job.toString().endsWith(JOB_SUFFIX)) {
+                        submit(job);
+                    }
+                }
+                key.reset();
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.log(Level.INFO, "Job directory watch stopped");
+        }
+    }
+
+    private void submit(Path job) {
+        try {
+            jobs.execute(() -> runJobFile(job));
+        } catch (RejectedExecutionException e) {
+            logger.log(Level.SEVERE, "Error: service is shutting down, job left in place: " + job);
+        }
+    }
+
+    private void runJobFile(Path job) {
+        RC rc;
+        try {
+            rc = runJob(new String(Files.readAllBytes(job)));
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Exception: ", e);
+            rc = RC.CODE_INVALID_INPUT_STREAM;
+        }
+        String suffix = rc == RC.CODE_SUCCESS ? DONE_SUFFIX : FAILED_SUFFIX;
+        try {
+            Files.move(job, job.resolveSibling(job.getFileName() + suffix), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Exception: ", e);
+        }
+    }
+
+    private void listen() {
+        while(running) {
+            try {
+                Socket socket = server.accept();
+                Thread connection = new Thread(() -> serve(socket), "manager-connection");
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException e) {
+                if(running) {
+                    logger.log(Level.SEVERE, "Exception: ", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket client = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream()));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(client.getOutputStream()), true)) {
+            String line;
+            while((line = in.readLine()) != null) {
+                String job = line.trim();
+                if(job.isEmpty()) {
+                    continue;
+                }
+                if(job.equals(SHUTDOWN)) {
+                    out.println(RC.CODE_SUCCESS);
+                    stop();
+                    return;
+                }
+                Future<RC> result;
+                try {
+                    result = jobs.submit(() -> runJob(job));
+                } catch (RejectedExecutionException e) {
+                    logger.log(Level.SEVERE, "Error: service is shutting down, job rejected: " + job);
+                    out.println(RC.CODE_FAILED_PIPELINE_CONSTRUCTION);
+                    continue;
+                }
+                RC rc;
+                try {
+                    rc = result.get();
+                } catch (ExecutionException e) {
+                    logger.log(Level.SEVERE, "Exception: ", e);
+                    rc = RC.CODE_FAILED_PIPELINE_CONSTRUCTION;
+                }
+                out.println(rc);
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Exception: ", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private RC runJob(String descriptor) {
+        String[] job = descriptor.trim().split("\\s+");
+        if(job.length != 3) {
+            logger.log(Level.SEVERE, "Error: job must be <input> <output> <config>: " + descriptor);
+            return RC.CODE_INVALID_ARGUMENT;
+        }
+        return new Manager(job[2], job[0], job[1]).work();
+    }
+
+    private void stop() {
+        running = false;
+        jobs.shutdown();
+        try {
+            if(server != null) {
+                server.close();
+            }
+            if(watcher != null) {
+                watcher.close();
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Exception: ", e);
+        }
+    }
+
+    private String[] read() {
+        ArrayList<String> lines = new ArrayList<>();
+        try(BufferedReader reader = new BufferedReader(new FileReader(new File(filename)))) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Exception: ", e.getMessage());
+            return null;
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    private static final String JOB_SUFFIX = ".job";
+    private static final String DONE_SUFFIX = ".done";
+    private static final String FAILED_SUFFIX = ".failed";
+    private static final String SHUTDOWN = "Shutdown";
+
+    private final String filename;
+    private ConfigServiceParams cfgP;
+    private ThreadPoolExecutor jobs;
+    private ServerSocket server;
+    private WatchService watcher;
+    private volatile boolean running = true;
+    private static final Logger logger = Logger.getLogger(ManagerService.class.getName());
+}
+
+class SyntacticServiceParser {
+    public static TreeMap<String, String> parse(String[] configData) {
+        TreeMap<String, String> tokens = new TreeMap<>();
+        ServiceGrammar grammar = new ServiceGrammar();
+        for(String str : configData) {
+            String key = str.substring(0, str.indexOf(grammar.delimiter())).trim();
+            String value = str.substring(str.indexOf(grammar.delimiter()) + grammar.delimiter().length()).trim();
+            tokens.put(key, value);
+        }
+        return tokens;
+    }
+}
+
+class SemanticServiceParser {
+    public static RC parse(TreeMap<String, String> tokens, ConfigServiceParams cfgP) {
+        ServiceGrammar grammar = new ServiceGrammar();
+        for(Map.Entry<String, String> entry : tokens.entrySet()) {
+            if(entry.getKey().equals(grammar.token(ServiceGrammarWords.JOB_DIRECTORY.ordinal()))) {
+                cfgP.jobDirectory = entry.getValue();
+            } else if(entry.getKey().equals(grammar.token(ServiceGrammarWords.PORT.ordinal()))) {
+                try {
+                    cfgP.port = Integer.parseInt(entry.getValue());
+                } catch (NumberFormatException e) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+                if(cfgP.port < 0 || cfgP.port > 0xFFFF) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+            } else if(entry.getKey().equals(grammar.token(ServiceGrammarWords.WORKERS.ordinal()))) {
+                try {
+                    cfgP.workers = Integer.parseInt(entry.getValue());
+                } catch (NumberFormatException e) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+                if(cfgP.workers < 1) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+            } else if(entry.getKey().equals(grammar.token(ServiceGrammarWords.QUEUE_SIZE.ordinal()))) {
+                try {
+                    cfgP.queueSize = Integer.parseInt(entry.getValue());
+                } catch (NumberFormatException e) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+                if(cfgP.queueSize < 1) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+            } else {
+                return RC.CODE_CONFIG_SEMANTIC_ERROR;
+            }
+        }
+        if(cfgP.jobDirectory == null && cfgP.port < 0) {
+            return RC.CODE_CONFIG_SEMANTIC_ERROR;
+        }
+        return RC.CODE_SUCCESS;
+    }
+}
+
+class ConfigServiceParams {
+    public String jobDirectory;
+    public int port = -1;
+    public int workers = Runtime.getRuntime().availableProcessors();
+    public int queueSize = 64;
+}
+
+class ServiceGrammar extends BaseGrammar {
+    ServiceGrammar() {
+        super(aTokens);
+    }
+    private static final String[] aTokens = new String[4];
+    static {
+        aTokens[0] = "JobDirectory";
+        aTokens[1] = "Port";
+        aTokens[2] = "Workers";
+        aTokens[3] = "QueueSize";
+    }
+}
+
+enum ServiceGrammarWords {
+    JOB_DIRECTORY,
+    PORT,
+    WORKERS,
+    QUEUE_SIZE
+}
@@ -0,0 +1,111 @@
+import ru.spbstu.pipeline.*;
+
+import java.nio.ByteBuffer;
+import java.util.function.Supplier;
+
+class MeteredStep implements IExecutor {
+    MeteredStep(IPipelineStep step, StageMetrics stageMetrics, PipelineMetrics pipelineMetrics) {
+        this.step = step;
+        metrics = stageMetrics;
+        pipeline = pipelineMetrics;
+    }
+
+    @Override
+    public RC execute() {
+        long[] nested = NESTED.get();
+        long outerNanos = nested[0];
+        long outerBytes = nested[1];
+        nested[0] = 0;
+        nested[1] = 0;
+
+        long bytes = pipeline.allocatedBytes();
+        long start = System.nanoTime();
+        RC rc = ((IConsumer) step).execute();
+        long elapsed = System.nanoTime() - start;
+        long allocated = pipeline.allocatedBytes() - bytes;
+
+        metrics.execute(elapsed - nested[0], allocated - nested[1]);
+        nested[0] = outerNanos + elapsed;
+        nested[1] = outerBytes + allocated;
+        return rc;
+    }
+
+    static void exclude(long nanos) {
+        NESTED.get()[0] += nanos;
+    }
+
+    @Override
+    public TYPE[] getOutputTypes() {
+        return ((IProducer) step).getOutputTypes();
+    }
+
+    @Override
+    public IMediator getMediator(TYPE type) {
+        IMediator mediator = ((IProducer) step).getMediator(type);
+        if(mediator == null) {
+            return null;
+        }
+        if(mediator instanceof Supplier) {
+            return new CountingBufferMediator(mediator);
+        }
+        return new CountingMediator(mediator);
+    }
+
+    @Override
+    public RC setConfig(String configName) {
+        return step.setConfig(configName);
+    }
+
+    @Override
+    public RC setProducer(IProducer prod) {
+        return step.setProducer(prod);
+    }
+
+    @Override
+    public RC setConsumer(IConsumer cons) {
+        return step.setConsumer(cons);
+    }
+
+    private class CountingMediator implements IMediator {
+        CountingMediator(IMediator mediator) {
+            this.mediator = mediator;
+        }
+
+        @Override
+        public Object getData() {
+            Object data = mediator.getData();
+            if(data instanceof byte[]) {
+                metrics.produce(((byte[]) data).length);
+            } else if(data instanceof char[]) {
+                metrics.produce(((char[]) data).length);
+            } else if(data instanceof short[]) {
+                metrics.produce(((short[]) data).length * 2L);
+            }
+            return data;
+        }
+
+        final IMediator mediator;
+    }
+
+    private class CountingBufferMediator extends CountingMediator implements Supplier<ByteBuffer> {
+        CountingBufferMediator(IMediator mediator) {
+            super(mediator);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ByteBuffer get() {
+            ByteBuffer view = ((Supplier<ByteBuffer>) mediator).get();
+            if(view != null) {
+                metrics.produce(view.remaining());
+            }
+            return view;
+        }
+    }
+
+    private static final ThreadLocal<long[]> NESTED = ThreadLocal.withInitial(() -> new long[2]);
+
+    private final IPipelineStep step;
+    private final StageMetrics metrics;
+    private final PipelineMetrics pipeline;
+}
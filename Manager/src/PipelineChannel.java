@@ -0,0 +1,184 @@
+import ru.spbstu.pipeline.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+class PipelineChannel implements IExecutor {
+    PipelineChannel(int capacity, Logger log) {
+        queue = new ArrayBlockingQueue<>(capacity);
+        logger = log;
+    }
+
+    @Override
+    public RC execute() {
+        Object item = take();
+        long start = System.nanoTime();
+        try {
+            while(!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if(rc != RC.CODE_SUCCESS) {
+                    return rc;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log(Level.SEVERE, "Exception: ", e);
+            return RC.CODE_FAILED_PIPELINE_CONSTRUCTION;
+        } finally {
+            long waited = System.nanoTime() - start;
+            putWait.add(waited);
+            MeteredStep.exclude(waited);
+        }
+        return rc;
+    }
+
+    private Object take() {
+        if(producerBuffer != null) {
+            ByteBuffer view = producerBuffer.get();
+            if(view == null) {
+                return END;
+            }
+            ByteBuffer copy = pool.acquire(view.remaining());
+            copy.put(view);
+            copy.flip();
+            return copy;
+        }
+        Object data = producerMediator.getData();
+        return data == null ? END : data;
+    }
+
+    void start(String name) {
+        thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void cancel() {
+        thread.interrupt();
+    }
+
+    RC join() {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log(Level.SEVERE, "Exception: ", e);
+            return RC.CODE_FAILED_PIPELINE_CONSTRUCTION;
+        }
+        return rc;
+    }
+
+    private void run() {
+        try {
+            while(true) {
+                long start = System.nanoTime();
+                Object item = queue.take();
+                takeWait.add(System.nanoTime() - start);
+                current = item == END ? null : item;
+                RC result = consumer.execute();
+                if(producerBuffer != null && current != null) {
+                    pool.release((ByteBuffer) current);
+                }
+                current = null;
+                if(result != RC.CODE_SUCCESS) {
+                    logger.log(Level.SEVERE, "Error: ", result);
+                    rc = result;
+                    return;
+                }
+                if(item == END) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            rc = RC.CODE_FAILED_PIPELINE_CONSTRUCTION;
+        }
+    }
+
+    long putWaitNanos() {
+        return putWait.sum();
+    }
+
+    long takeWaitNanos() {
+        return takeWait.sum();
+    }
+
+    @Override
+    public TYPE[] getOutputTypes() {
+        return producer.getOutputTypes();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public IMediator getMediator(TYPE type) {
+        producerMediator = producer.getMediator(type);
+        if(producerMediator == null) {
+            return null;
+        }
+        if(type == TYPE.BYTE && producerMediator instanceof Supplier) {
+            producerBuffer = (Supplier<ByteBuffer>) producerMediator;
+            return new BufferMediator();
+        }
+        return () -> current;
+    }
+
+    private class BufferMediator implements IMediator, Supplier<ByteBuffer> {
+        @Override
+        public Object getData() {
+            ByteBuffer view = get();
+            if(view == null) {
+                return null;
+            }
+            byte[] data = new byte[view.remaining()];
+            view.get(data);
+            return data;
+        }
+
+        @Override
+        public ByteBuffer get() {
+            if(current == null) {
+                return null;
+            }
+            ByteBuffer view = ((ByteBuffer) current).duplicate();
+            view.rewind();
+            return view;
+        }
+    }
+
+    @Override
+    public RC setConfig(String configName) {
+        return RC.CODE_SUCCESS;
+    }
+
+    @Override
+    public RC setProducer(IProducer prod) {
+        producer = prod;
+        return RC.CODE_SUCCESS;
+    }
+
+    @Override
+    public RC setConsumer(IConsumer cons) {
+        consumer = cons;
+        return RC.CODE_SUCCESS;
+    }
+
+    private static final Object END = new Object();
+    private static final long POLL_MILLIS = 100;
+
+    private final BlockingQueue<Object> queue;
+    private final Logger logger;
+    private IProducer producer;
+    private IConsumer consumer;
+    private IMediator producerMediator;
+    private Supplier<ByteBuffer> producerBuffer;
+    private final BufferPool pool = BufferPool.shared();
+    private Thread thread;
+    private Object current;
+    private final LongAdder putWait = new LongAdder();
+    private final LongAdder takeWait = new LongAdder();
+    private volatile RC rc = RC.CODE_SUCCESS;
+}
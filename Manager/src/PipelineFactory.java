@@ -0,0 +1,41 @@
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+class PipelineFactory {
+    static ConfigParams config(String fileName) {
+        CachedConfig<ConfigParams> cached = configs.get(fileName);
+        if(cached != null && cached.isCurrent(new File(fileName))) {
+            return cached.params;
+        }
+        return null;
+    }
+
+    static void cache(String fileName, long modified, long length, ConfigParams cfgP) {
+        configs.put(fileName, new CachedConfig<>(modified, length, cfgP));
+    }
+
+    static <T> T create(String className, Class<T> type, Logger logger) throws ReflectiveOperationException {
+        MethodHandle constructor = constructors.get(className);
+        if(constructor == null) {
+            constructor = MethodHandles.publicLookup()
+                    .findConstructor(Class.forName(className), MethodType.methodType(void.class, Logger.class))
+                    .asType(MethodType.methodType(Object.class, Logger.class));
+            constructors.putIfAbsent(className, constructor);
+        }
+        try {
+            return type.cast(constructor.invokeExact(logger));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    private static final ConcurrentHashMap<String, CachedConfig<ConfigParams>> configs = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, MethodHandle> constructors = new ConcurrentHashMap<>();
+}
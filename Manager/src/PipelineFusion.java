@@ -0,0 +1,28 @@
+import ru.spbstu.pipeline.*;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+class PipelineFusion {
+    static boolean[] plan(IPipelineStep[] stages, TYPE[] types, String[] names, int processors, Logger logger) {
+        boolean[] fused = new boolean[types.length];
+        boolean[] views = new boolean[types.length];
+        for(int i = 0; i < types.length; ++i) {
+            views[i] = TypeNegotiation.isView((IProducer) stages[i], types[i]);
+        }
+        int segments = stages.length;
+        for(int i = types.length - 1; i >= 0 && segments > processors; --i) {
+            if(views[i]) {
+                fused[i] = true;
+                --segments;
+            }
+        }
+        StringBuilder description = new StringBuilder("[").append(names[0]);
+        for(int i = 0; i < fused.length; ++i) {
+            description.append(fused[i] ? " + " : "] -> [").append(names[i + 1]);
+        }
+        description.append("]");
+        logger.log(Level.INFO, "Fusion: " + description + ", threads " + segments);
+        return fused;
+    }
+}
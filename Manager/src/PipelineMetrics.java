@@ -0,0 +1,167 @@
+import ru.spbstu.pipeline.IPipelineStep;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+class PipelineMetrics implements PipelineMetricsMBean {
+    PipelineMetrics(Logger log) {
+        logger = log;
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemoryEnabled()) {
+            allocation = (com.sun.management.ThreadMXBean) bean;
+        } else {
+            allocation = null;
+        }
+    }
+
+    IPipelineStep wrap(String name, IPipelineStep step) {
+        StageMetrics metrics = new StageMetrics(name);
+        stages.add(metrics);
+        return new MeteredStep(step, metrics, this);
+    }
+
+    void register(String name, PipelineChannel channel) {
+        channels.add(new ChannelMetrics(name, channel));
+    }
+
+    long allocatedBytes() {
+        if(allocation == null) {
+            return 0;
+        }
+        return allocation.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    void start(long intervalMillis) {
+        startNanos = System.nanoTime();
+        if(intervalMillis <= 0) {
+            return;
+        }
+        try {
+            name = new ObjectName("ru.spbstu.pipeline:type=PipelineMetrics,id=" + INSTANCES.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new StandardMBean(this, PipelineMetricsMBean.class), name);
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Exception: ", e);
+            name = null;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> logger.log(Level.INFO, getSnapshot()), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void stop(boolean json) {
+        if(scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if(name != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            } catch (JMException e) {
+                logger.log(Level.WARNING, "Exception: ", e);
+            }
+        }
+        logger.log(Level.INFO, json ? getSnapshot() : summary());
+    }
+
+    @Override
+    public String getSnapshot() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"elapsedMillis\":").append(millis(System.nanoTime() - startNanos)).append(",\"stages\":[");
+        for(int i = 0; i < stages.size(); ++i) {
+            StageMetrics stage = stages.get(i);
+            String blocksIn = i > 0 ? Long.toString(stages.get(i - 1).blocksOut.sum()) : "null";
+            String bytesIn = i > 0 ? Long.toString(stages.get(i - 1).bytesOut.sum()) : "null";
+            if(i > 0) {
+                json.append(',');
+            }
+            json.append("{\"name\":\"").append(stage.name)
+                    .append("\",\"calls\":").append(stage.calls.sum())
+                    .append(",\"blocksIn\":").append(blocksIn)
+                    .append(",\"blocksOut\":").append(stage.blocksOut.sum())
+                    .append(",\"bytesIn\":").append(bytesIn)
+                    .append(",\"bytesOut\":").append(stage.bytesOut.sum())
+                    .append(",\"selfMillis\":").append(millis(stage.selfNanos.sum()))
+                    .append(",\"allocatedBytes\":").append(stage.allocatedBytes.sum())
+                    .append(",\"latencyMicros\":{\"p50\":").append(micros(stage.latency.percentile(50)))
+                    .append(",\"p90\":").append(micros(stage.latency.percentile(90)))
+                    .append(",\"p99\":").append(micros(stage.latency.percentile(99)))
+                    .append(",\"max\":").append(micros(stage.latency.max())).append("}}");
+        }
+        json.append("],\"channels\":[");
+        for(int i = 0; i < channels.size(); ++i) {
+            ChannelMetrics channel = channels.get(i);
+            if(i > 0) {
+                json.append(',');
+            }
+            json.append("{\"name\":\"").append(channel.name)
+                    .append("\",\"putWaitMillis\":").append(millis(channel.channel.putWaitNanos()))
+                    .append(",\"takeWaitMillis\":").append(millis(channel.channel.takeWaitNanos()))
+                    .append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private String summary() {
+        StringBuilder text = new StringBuilder("Pipeline metrics after ").append(millis(System.nanoTime() - startNanos)).append(" ms");
+        for(int i = 0; i < stages.size(); ++i) {
+            StageMetrics stage = stages.get(i);
+            String blocksIn = i > 0 ? Long.toString(stages.get(i - 1).blocksOut.sum()) : "n/a";
+            String bytesIn = i > 0 ? Long.toString(stages.get(i - 1).bytesOut.sum()) : "n/a";
+            long calls = Math.max(1, stage.calls.sum());
+            text.append(System.lineSeparator()).append(String.format(Locale.ROOT,
+                    "%-20s blocks %s/%d, bytes %s/%d, self %s ms, latency p50 %s us p99 %s us max %s us, %d B allocated per call",
+                    stage.name, blocksIn, stage.blocksOut.sum(), bytesIn, stage.bytesOut.sum(),
+                    millis(stage.selfNanos.sum()), micros(stage.latency.percentile(50)), micros(stage.latency.percentile(99)),
+                    micros(stage.latency.max()), stage.allocatedBytes.sum() / calls));
+        }
+        for(ChannelMetrics channel : channels) {
+            text.append(System.lineSeparator()).append(String.format(Locale.ROOT,
+                    "%-20s put wait %s ms, take wait %s ms",
+                    channel.name, millis(channel.channel.putWaitNanos()), millis(channel.channel.takeWaitNanos())));
+        }
+        return text.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1e3);
+    }
+
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private final Logger logger;
+    private final com.sun.management.ThreadMXBean allocation;
+    private final ArrayList<StageMetrics> stages = new ArrayList<>();
+    private final ArrayList<ChannelMetrics> channels = new ArrayList<>();
+    private ScheduledExecutorService scheduler;
+    private ObjectName name;
+    private long startNanos;
+}
+
+class ChannelMetrics {
+    ChannelMetrics(String channelName, PipelineChannel pipelineChannel) {
+        name = channelName;
+        channel = pipelineChannel;
+    }
+
+    final String name;
+    final PipelineChannel channel;
+}
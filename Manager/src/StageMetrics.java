@@ -0,0 +1,27 @@
+import java.util.concurrent.atomic.LongAdder;
+
+class StageMetrics {
+    StageMetrics(String stageName) {
+        name = stageName;
+    }
+
+    void execute(long nanos, long bytes) {
+        calls.increment();
+        selfNanos.add(nanos);
+        allocatedBytes.add(bytes);
+        latency.record(nanos);
+    }
+
+    void produce(long bytes) {
+        blocksOut.increment();
+        bytesOut.add(bytes);
+    }
+
+    final String name;
+    final LongAdder calls = new LongAdder();
+    final LongAdder blocksOut = new LongAdder();
+    final LongAdder bytesOut = new LongAdder();
+    final LongAdder selfNanos = new LongAdder();
+    final LongAdder allocatedBytes = new LongAdder();
+    final LatencyHistogram latency = new LatencyHistogram();
+}
@@ -0,0 +1,4 @@
+class StringPair {
+    public String executor;
+    public String config;
+}
@@ -0,0 +1,104 @@
+import ru.spbstu.pipeline.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+class TypeNegotiation {
+    static TYPE[] plan(IPipelineStep[] stages, String[] names, Logger logger) {
+        TYPE[] plan = new TYPE[stages.length - 1];
+        StringBuilder description = new StringBuilder(names[0]);
+        int conversions = 0;
+        int copies = 0;
+        for(int i = 0; i < plan.length; ++i) {
+            IProducer producer = (IProducer) stages[i];
+            String key = producer.getClass().getName() + KEY_DELIMITER + names[i + 1];
+            NegotiatedEdge edge = EDGES.get(key);
+            if(edge == null) {
+                edge = negotiate(producer, names[i], names[i + 1], logger);
+                if(edge == null) {
+                    return null;
+                }
+                EDGES.putIfAbsent(key, edge);
+            }
+            plan[i] = edge.type;
+            conversions += conversions(plan[i]);
+            copies += edge.view ? 0 : 1;
+            description.append(" =").append(plan[i]).append(edge.view ? "(view)" : "").append("=> ").append(names[i + 1]);
+        }
+        logger.log(Level.CONFIG, "Type plan: " + description + ", conversions " + conversions + ", copies " + copies);
+        return plan;
+    }
+
+    private static NegotiatedEdge negotiate(IProducer producer, String producerName, String consumerName, Logger logger) {
+        IPipelineStep consumer = probe(consumerName, logger);
+        if(consumer == null) {
+            return null;
+        }
+        NegotiatedEdge best = null;
+        int bestCost = Integer.MAX_VALUE;
+        for(TYPE type : producer.getOutputTypes()) {
+            if(!accepts(consumer, type)) {
+                continue;
+            }
+            boolean view = isView(producer, type);
+            int cost = conversions(type) * CONVERSION_COST + (view ? 0 : COPY_COST);
+            if(cost < bestCost) {
+                bestCost = cost;
+                best = new NegotiatedEdge(type, view);
+            }
+        }
+        if(best == null) {
+            logger.log(Level.SEVERE, "Error: no common type between " + producerName + " and " + consumerName);
+        }
+        return best;
+    }
+
+    static boolean isView(IProducer producer, TYPE type) {
+        return type == TYPE.BYTE && producer.getMediator(type) instanceof Supplier;
+    }
+
+    private static IPipelineStep probe(String name, Logger logger) {
+        try {
+            return PipelineFactory.create(name, IPipelineStep.class, logger);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            logger.log(Level.SEVERE, "Exception: ", e);
+            return null;
+        }
+    }
+
+    private static boolean accepts(IPipelineStep consumer, TYPE type) {
+        return consumer.setProducer(new TypedProducer(PROBE, type)) == RC.CODE_SUCCESS;
+    }
+
+    private static int conversions(TYPE type) {
+        return type == TYPE.BYTE ? 0 : 2;
+    }
+
+    private static final String KEY_DELIMITER = "->";
+    private static final ConcurrentHashMap<String, NegotiatedEdge> EDGES = new ConcurrentHashMap<>();
+    private static final int COPY_COST = 1;
+    private static final int CONVERSION_COST = 2;
+    private static final IProducer PROBE = new IProducer() {
+        @Override
+        public TYPE[] getOutputTypes() {
+            return TYPE.values();
+        }
+
+        @Override
+        public IMediator getMediator(TYPE type) {
+            return () -> null;
+        }
+    };
+}
+
+class NegotiatedEdge {
+    NegotiatedEdge(TYPE type, boolean view) {
+        this.type = type;
+        this.view = view;
+    }
+
+    final TYPE type;
+    final boolean view;
+}
@@ -0,0 +1,24 @@
+import ru.spbstu.pipeline.*;
+
+class TypedProducer implements IProducer {
+    TypedProducer(IProducer producer, TYPE type) {
+        this.producer = producer;
+        this.types = new TYPE[] {type};
+    }
+
+    @Override
+    public TYPE[] getOutputTypes() {
+        return types;
+    }
+
+    @Override
+    public IMediator getMediator(TYPE type) {
+        if(type != types[0]) {
+            return null;
+        }
+        return producer.getMediator(type);
+    }
+
+    private final IProducer producer;
+    private final TYPE[] types;
+}
@@ -3,10 +3,16 @@ import ru.spbstu.pipeline.*;
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -17,30 +23,142 @@ public class Reader implements IReader {
 
     @Override
     public RC execute() {
+        if(cfgP.mode == ReaderGrammarWords.MAPPED) {
+            return executeMapped();
+        }
+        if(cfgP.mode == ReaderGrammarWords.FRAMES) {
+            return executeFrames();
+        }
+        if(cfgP.mode == ReaderGrammarWords.READ_AHEAD) {
+            return executeReadAhead();
+        }
         int readied;
         RC rc;
-        bytes = new byte[cfgP.size];
-        do {
-            readied = read(bytes);
-            if(readied < 0) {
-                bytes = null;
-            }
-            if(readied != cfgP.size && bytes != null) {
-                bytes = Arrays.copyOf(bytes, readied);
+        ByteBuffer buffer = pool.acquire(cfgP.size);
+        try {
+            do {
+                readied = read(buffer.array());
+                if(readied == READ_FAILED) {
+                    return RC.CODE_FAILED_TO_READ;
+                }
+                if(readied < 0) {
+                    bytes = null;
+                } else {
+                    buffer.clear();
+                    buffer.limit(readied);
+                    bytes = buffer;
+                }
+
+                //System.out.println("<" + new String(bytes) + ">");
+                rc = consumer.execute();
+                if(rc != RC.CODE_SUCCESS) {
+                    return rc;
+                }
+
+                if(bytes == null) {
+                    return RC.CODE_SUCCESS;
+                }
+
+            } while(true);
+        } finally {
+            bytes = null;
+            pool.release(buffer);
+        }
+    }
+
+    private RC executeMapped() {
+        RC rc;
+        try {
+            FileChannel channel = reader.getChannel();
+            long size = channel.size();
+            long window = Math.max(cfgP.size, MAP_WINDOW / cfgP.size * cfgP.size);
+            for(long position = channel.position(); position < size; position += window) {
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(window, size - position));
+                while(map.hasRemaining()) {
+                    int length = Math.min(cfgP.size, map.remaining());
+                    bytes = map.slice();
+                    bytes.limit(length);
+                    map.position(map.position() + length);
+
+                    rc = consumer.execute();
+                    if(rc != RC.CODE_SUCCESS) {
+                        return rc;
+                    }
+                }
             }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Exception: ", e.getMessage());
+            return RC.CODE_FAILED_TO_READ;
+        }
+        bytes = null;
+        return consumer.execute();
+    }
 
-            //System.out.println("<" + new String(bytes) + ">");
-            rc = consumer.execute();
-            if(rc != RC.CODE_SUCCESS) {
-                return rc;
+    private RC executeReadAhead() {
+        RC rc;
+        ReadAhead readAhead = new ReadAhead(reader, cfgP.size, cfgP.prefetch, pool, logger);
+        readAhead.start();
+        try {
+            while(true) {
+                ByteBuffer block = readAhead.take();
+                if(block == null) {
+                    break;
+                }
+                bytes = block;
+                rc = consumer.execute();
+                bytes = null;
+                pool.release(block);
+                if(rc != RC.CODE_SUCCESS) {
+                    return rc;
+                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log(Level.SEVERE, "Exception: ", e);
+            return RC.CODE_FAILED_TO_READ;
+        } finally {
+            bytes = null;
+            readAhead.stop();
+        }
+        rc = readAhead.rc();
+        if(rc != RC.CODE_SUCCESS) {
+            logger.log(Level.SEVERE, "Error: ", rc);
+            return rc;
+        }
+        return consumer.execute();
+    }
 
-            if(bytes == null) {
-                return RC.CODE_SUCCESS;
+    private RC executeFrames() {
+        RC rc;
+        ByteBuffer buffer = null;
+        try {
+            FileChannel channel = reader.getChannel();
+            long[] boundaries = ContainerFormat.frameBoundaries(channel);
+            if(boundaries == null) {
+                logger.log(Level.SEVERE, "Error: input has no block index");
+                return RC.CODE_FAILED_TO_READ;
             }
+            for(int i = 0; i < boundaries.length - 1; ++i) {
+                int length = (int) (boundaries[i + 1] - boundaries[i]);
+                buffer = pool.grow(buffer, length);
+                bytes = buffer;
+                ContainerFormat.readFully(channel, bytes, boundaries[i]);
+                bytes.flip();
 
-        } while(readied == cfgP.size);
-        return RC.CODE_SUCCESS;
+                rc = consumer.execute();
+                if(rc != RC.CODE_SUCCESS) {
+                    return rc;
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Exception: ", e.getMessage());
+            return RC.CODE_FAILED_TO_READ;
+        } finally {
+            bytes = null;
+            pool.release(buffer);
+        }
+        bytes = null;
+        return consumer.execute();
     }
 
     private int read(byte[] bytes) {
@@ -53,6 +171,7 @@ public class Reader implements IReader {
             }
         } catch (IOException e) {
             logger.log(Level.SEVERE, "Exception: ", e.getMessage());
+            return READ_FAILED;
         }
         return readied;
     }
@@ -84,13 +203,25 @@ public class Reader implements IReader {
     @Override
     public RC setConfig(String configName) {
         config = configName;
+        File file = new File(config);
+        CachedConfig<ConfigReaderParams> cached = configCache.get(config);
+        if(cached != null && cached.isCurrent(file)) {
+            cfgP = cached.params;
+            return RC.CODE_SUCCESS;
+        }
+        long modified = file.lastModified();
+        long length = file.length();
         String[] lines = readConfig();
         if(lines == null) {
             return RC.CODE_CONFIG_GRAMMAR_ERROR;
         }
         TreeMap<String, String> tokens = SyntacticReaderParser.parse(lines);
         cfgP = new ConfigReaderParams();
-        return SemanticReaderParser.parse(tokens, cfgP);
+        RC rc = SemanticReaderParser.parse(tokens, cfgP);
+        if(rc == RC.CODE_SUCCESS) {
+            configCache.put(config, new CachedConfig<>(modified, length, cfgP));
+        }
+        return rc;
     }
 
     private String[] readConfig() {
@@ -119,13 +250,26 @@ public class Reader implements IReader {
         return RC.CODE_SUCCESS;
     }
 
-    public class ByteMediator implements IMediator {
+    public class ByteMediator implements IMediator, Supplier<ByteBuffer> {
         @Override
         public Object getData() {
+            ByteBuffer view = get();
+            if(view == null) {
+                return null;
+            }
+            byte[] data = new byte[view.remaining()];
+            view.get(data);
+            return data;
+        }
+
+        @Override
+        public ByteBuffer get() {
             if(bytes == null) {
                 return null;
             }
-            return Arrays.copyOf(bytes, bytes.length);
+            ByteBuffer view = bytes.duplicate();
+            view.rewind();
+            return view;
         }
     }
 
@@ -135,9 +279,14 @@ public class Reader implements IReader {
             if(bytes == null) {
                 return null;
             }
-            char[] chars = new char[bytes.length];
-            for(int i = 0; i < bytes.length; ++i) {
-                chars[i] = (char) bytes[i];
+            bytes.rewind();
+            char[] chars = new char[bytes.remaining()];
+            if(bytes.hasArray()) {
+                BlockConversions.bytesToChars(bytes.array(), bytes.arrayOffset(), chars, 0, chars.length);
+                return chars;
+            }
+            for(int i = 0; i < chars.length; ++i) {
+                chars[i] = (char) bytes.get(i);
             }
             return chars;
         }
@@ -148,8 +297,13 @@ public class Reader implements IReader {
             if(bytes == null) {
                 return null;
             }
-            short[] shorts = new short[bytes.length / 2];
-            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(shorts);
+            bytes.rewind();
+            short[] shorts = new short[bytes.remaining() / 2];
+            if(bytes.hasArray()) {
+                BlockConversions.bytesToShorts(bytes.array(), bytes.arrayOffset(), shorts, 0, shorts.length);
+                return shorts;
+            }
+            bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(shorts);
             return shorts;
         }
     }
@@ -161,8 +315,14 @@ public class Reader implements IReader {
     private static final TYPE[] types = {TYPE.BYTE, TYPE.CHAR};
     private final Logger logger;
 
+    private static final int READ_FAILED = -2;
+    private static final long MAP_WINDOW = 1L << 30;
+
+    private final BufferPool pool = BufferPool.shared();
+
     private ConfigReaderParams cfgP;
-    private byte[] bytes;
+    private static final ConcurrentHashMap<String, CachedConfig<ConfigReaderParams>> configCache = new ConcurrentHashMap<>();
+    private ByteBuffer bytes;
 }
 
 class SyntacticReaderParser {
@@ -186,6 +346,27 @@ class SemanticReaderParser {
         for(Map.Entry<String, String> entry : tokens.entrySet()) {
             if(entry.getKey().equals(grammar.token(ReaderGrammarWords.SIZE.ordinal()))) {
                 cfgP.size = Integer.parseInt(entry.getValue());
+            } else if(entry.getKey().equals(grammar.token(ReaderGrammarWords.MODE.ordinal()))) {
+                if(entry.getValue().equals(grammar.token(ReaderGrammarWords.MAPPED.ordinal()))) {
+                    cfgP.mode = ReaderGrammarWords.MAPPED;
+                } else if(entry.getValue().equals(grammar.token(ReaderGrammarWords.STREAM.ordinal()))) {
+                    cfgP.mode = ReaderGrammarWords.STREAM;
+                } else if(entry.getValue().equals(grammar.token(ReaderGrammarWords.FRAMES.ordinal()))) {
+                    cfgP.mode = ReaderGrammarWords.FRAMES;
+                } else if(entry.getValue().equals(grammar.token(ReaderGrammarWords.READ_AHEAD.ordinal()))) {
+                    cfgP.mode = ReaderGrammarWords.READ_AHEAD;
+                } else {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+            } else if(entry.getKey().equals(grammar.token(ReaderGrammarWords.PREFETCH.ordinal()))) {
+                try {
+                    cfgP.prefetch = Integer.parseInt(entry.getValue());
+                } catch (NumberFormatException e) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+                if(cfgP.prefetch < 1) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
             } else {
                 return RC.CODE_CONFIG_SEMANTIC_ERROR;
             }
@@ -196,21 +377,140 @@ class SemanticReaderParser {
 
 class ConfigReaderParams {
     public int size;
+    public ReaderGrammarWords mode = ReaderGrammarWords.STREAM;
+    public int prefetch = 4;
+}
+
+class ReadAhead implements Runnable {
+    ReadAhead(InputStream input, int size, int depth, BufferPool pool, Logger logger) {
+        this.input = input;
+        this.size = size;
+        this.pool = pool;
+        this.logger = logger;
+        queue = new ArrayBlockingQueue<>(depth);
+    }
+
+    void start() {
+        thread = new Thread(this, "reader-read-ahead");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    ByteBuffer take() throws InterruptedException {
+        ByteBuffer block = queue.take();
+        return block == END ? null : block;
+    }
+
+    RC rc() {
+        return rc;
+    }
+
+    void stop() {
+        stopped = true;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ByteBuffer block;
+        while((block = queue.poll()) != null) {
+            if(block != END) {
+                pool.release(block);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while(!stopped) {
+                ByteBuffer block = pool.acquire(size);
+                int length = fill(block.array());
+                if(length == 0) {
+                    pool.release(block);
+                    break;
+                }
+                block.limit(length);
+                if(!put(block)) {
+                    pool.release(block);
+                    return;
+                }
+                if(length < size) {
+                    logger.log(Level.INFO, "File is over!");
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Exception: ", e.getMessage());
+            rc = RC.CODE_FAILED_TO_READ;
+        }
+        put(END);
+    }
+
+    private int fill(byte[] data) throws IOException {
+        int length = 0;
+        while(length < size) {
+            int readied = input.read(data, length, size - length);
+            if(readied < 0) {
+                break;
+            }
+            length += readied;
+        }
+        return length;
+    }
+
+    private boolean put(ByteBuffer block) {
+        try {
+            while(!stopped) {
+                if(queue.offer(block, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+    private static final long POLL_MILLIS = 100;
+
+    private final InputStream input;
+    private final int size;
+    private final BufferPool pool;
+    private final Logger logger;
+    private final BlockingQueue<ByteBuffer> queue;
+    private Thread thread;
+    private volatile boolean stopped;
+    private volatile RC rc = RC.CODE_SUCCESS;
 }
 
 class ReaderGrammar extends BaseGrammar {
     ReaderGrammar() {
         super(aTokens);
     }
-    private static final String[] aTokens = new String[4];
+    private static final String[] aTokens = new String[9];
     static {
         aTokens[0] = "Size";
         aTokens[1] = "Mode";
         aTokens[2] = "Encode";
         aTokens[3] = "Decode";
+        aTokens[4] = "Stream";
+        aTokens[5] = "Mapped";
+        aTokens[6] = "Frames";
+        aTokens[7] = "ReadAhead";
+        aTokens[8] = "Prefetch";
     }
 }
 
 enum ReaderGrammarWords {
-    SIZE
+    SIZE,
+    MODE,
+    ENCODE,
+    DECODE,
+    STREAM,
+    MAPPED,
+    FRAMES,
+    READ_AHEAD,
+    PREFETCH
 }
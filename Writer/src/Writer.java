@@ -1,9 +1,13 @@
 import ru.spbstu.pipeline.*;
 
-import java.io.FileOutputStream;
-import java.io.IOException;
+import java.io.*;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -14,14 +18,58 @@ public class Writer implements IWriter {
 
     @Override
     public RC execute() {
-        byte[] bytes = handleData();
+        if(cfgP.mode == WriterGrammarWords.GATHER) {
+            if(bufferMediator != null) {
+                return gather(bufferMediator.get());
+            }
+            return gather(handleData());
+        }
+        if(bufferMediator != null) {
+            return writeView(bufferMediator.get());
+        }
+        return writeView(handleData());
+    }
 
-        if(bytes == null) {
+    private RC writeView(ByteBuffer view) {
+        if(view == null) {
             return RC.CODE_SUCCESS;
         }
+        try {
+            FileChannel channel = writer.getChannel();
+            while(view.hasRemaining()) {
+                channel.write(view);
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Expression: ", e.getMessage());
+            return RC.CODE_FAILED_TO_WRITE;
+        }
+        return RC.CODE_SUCCESS;
+    }
 
+    private RC gather(ByteBuffer block) {
         try {
-            writer.write(bytes);
+            FileChannel channel = writer.getChannel();
+            if(block == null) {
+                aggregate.flip();
+                while(aggregate.hasRemaining()) {
+                    channel.write(aggregate);
+                }
+                aggregate.clear();
+                if(cfgP.force) {
+                    channel.force(false);
+                }
+                return RC.CODE_SUCCESS;
+            }
+            if(block.remaining() < aggregate.remaining()) {
+                aggregate.put(block);
+                return RC.CODE_SUCCESS;
+            }
+            aggregate.flip();
+            ByteBuffer[] buffers = {aggregate, block};
+            while(block.hasRemaining()) {
+                channel.write(buffers);
+            }
+            aggregate.clear();
         } catch (IOException e) {
             logger.log(Level.SEVERE, "Expression: ", e.getMessage());
             return RC.CODE_FAILED_TO_WRITE;
@@ -29,26 +77,28 @@ public class Writer implements IWriter {
         return RC.CODE_SUCCESS;
     }
 
-    private byte[] handleData() {
+    private ByteBuffer handleData() {
         Object data = mediator.getData();
         if(data == null) {
+            pool.release(converted);
+            converted = null;
             return null;
         }
         switch (type) {
             case BYTE: {
-                return (byte[]) data;
+                return ByteBuffer.wrap((byte[]) data);
             }
             case CHAR: {
-                byte[] byteData = new byte[((char[]) data).length];
-                for (int i = 0; i < ((char[]) data).length; ++i) {
-                    byteData[i] = (byte) ((char[]) data)[i];
-                }
-                return byteData;
+                char[] chars = (char[]) data;
+                converted = pool.grow(converted, chars.length);
+                BlockConversions.charsToBytes(chars, 0, converted.array(), 0, chars.length);
+                return converted;
             }
             case SHORT: {
-                byte[] byteData = new byte[((short[]) data).length * 2];
-                ByteBuffer.wrap(byteData).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().put(((short[]) data));
-                return byteData;
+                short[] shorts = (short[]) data;
+                converted = pool.grow(converted, shorts.length * 2);
+                BlockConversions.shortsToBytes(shorts, 0, converted.array(), 0, shorts.length);
+                return converted;
             }
         }
         return null;
@@ -63,9 +113,45 @@ public class Writer implements IWriter {
     @Override
     public RC setConfig(String configName) {
         config = configName;
+        File file = new File(config);
+        CachedConfig<ConfigWriterParams> cached = configCache.get(config);
+        if(cached != null && cached.isCurrent(file)) {
+            cfgP = cached.params;
+        } else {
+            long modified = file.lastModified();
+            long length = file.length();
+            String[] lines = readConfig();
+            if(lines == null) {
+                return RC.CODE_CONFIG_GRAMMAR_ERROR;
+            }
+            TreeMap<String, String> tokens = SyntacticWriterParser.parse(lines);
+            cfgP = new ConfigWriterParams();
+            RC rc = SemanticWriterParser.parse(tokens, cfgP);
+            if(rc != RC.CODE_SUCCESS) {
+                return rc;
+            }
+            configCache.put(config, new CachedConfig<>(modified, length, cfgP));
+        }
+        if(cfgP.mode == WriterGrammarWords.GATHER) {
+            aggregate = ByteBuffer.allocateDirect(cfgP.flushThreshold);
+        }
         return RC.CODE_SUCCESS;
     }
 
+    private String[] readConfig() {
+        ArrayList<String> lines = new ArrayList<>();
+        try(BufferedReader reader = new BufferedReader(new FileReader(new File(config)))) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Exception: ", e);
+            return null;
+        }
+        return lines.toArray(new String[0]);
+    }
+
     @Override
     public RC setProducer(IProducer prod) {
         producer = prod;
@@ -85,9 +171,18 @@ public class Writer implements IWriter {
             return RC.CODE_FAILED_PIPELINE_CONSTRUCTION;
         }
         mediator = producer.getMediator(type);
+        bufferMediator = bufferMediator(type, mediator);
         return RC.CODE_SUCCESS;
     }
 
+    @SuppressWarnings("unchecked")
+    private static Supplier<ByteBuffer> bufferMediator(TYPE type, IMediator mediator) {
+        if(type == TYPE.BYTE && mediator instanceof Supplier) {
+            return (Supplier<ByteBuffer>) mediator;
+        }
+        return null;
+    }
+
     @Override
     public RC setConsumer(IConsumer cons) {
         consumer = cons;
@@ -101,5 +196,96 @@ public class Writer implements IWriter {
     private static final TYPE[] types = {TYPE.BYTE, TYPE.SHORT};
     private final Logger logger;
     private IMediator mediator;
+    private Supplier<ByteBuffer> bufferMediator;
     private TYPE type;
+
+    private ConfigWriterParams cfgP;
+    private static final ConcurrentHashMap<String, CachedConfig<ConfigWriterParams>> configCache = new ConcurrentHashMap<>();
+    private ByteBuffer aggregate;
+    private final BufferPool pool = BufferPool.shared();
+    private ByteBuffer converted;
+}
+
+class SyntacticWriterParser {
+    public static TreeMap<String, String> parse(String[] configData) {
+        TreeMap<String, String> tokens = new TreeMap<>();
+        WriterGrammar grammar = new WriterGrammar();
+        for(String str : configData) {
+            String key = str.substring(0, str.indexOf(grammar.delimiter()));
+            key = key.substring(0, key.lastIndexOf(' '));
+            String value = str.substring(str.indexOf(grammar.delimiter()));
+            value = value.substring(value.indexOf(' ') + 1);
+            tokens.put(key, value);
+        }
+        return tokens;
+    }
+}
+
+class SemanticWriterParser {
+    public static RC parse(TreeMap<String, String> tokens, ConfigWriterParams cfgP) {
+        WriterGrammar grammar = new WriterGrammar();
+        for(Map.Entry<String, String> entry : tokens.entrySet()) {
+            if(entry.getKey().equals(grammar.token(WriterGrammarWords.MODE.ordinal()))) {
+                if(entry.getValue().equals(grammar.token(WriterGrammarWords.GATHER.ordinal()))) {
+                    cfgP.mode = WriterGrammarWords.GATHER;
+                } else if(entry.getValue().equals(grammar.token(WriterGrammarWords.STREAM.ordinal()))) {
+                    cfgP.mode = WriterGrammarWords.STREAM;
+                } else {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+            } else if(entry.getKey().equals(grammar.token(WriterGrammarWords.FLUSH_THRESHOLD.ordinal()))) {
+                try {
+                    cfgP.flushThreshold = Integer.parseInt(entry.getValue());
+                } catch (NumberFormatException e) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+                if(cfgP.flushThreshold < 1) {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+            } else if(entry.getKey().equals(grammar.token(WriterGrammarWords.FORCE.ordinal()))) {
+                if(entry.getValue().equals(grammar.token(WriterGrammarWords.END.ordinal()))) {
+                    cfgP.force = true;
+                } else if(entry.getValue().equals(grammar.token(WriterGrammarWords.NEVER.ordinal()))) {
+                    cfgP.force = false;
+                } else {
+                    return RC.CODE_CONFIG_SEMANTIC_ERROR;
+                }
+            } else {
+                return RC.CODE_CONFIG_SEMANTIC_ERROR;
+            }
+        }
+        return RC.CODE_SUCCESS;
+    }
+}
+
+class ConfigWriterParams {
+    public WriterGrammarWords mode = WriterGrammarWords.STREAM;
+    public int flushThreshold = 1 << 20;
+    public boolean force;
+}
+
+class WriterGrammar extends BaseGrammar {
+    WriterGrammar() {
+        super(aTokens);
+    }
+    private static final String[] aTokens = new String[7];
+    static {
+        aTokens[0] = "Mode";
+        aTokens[1] = "Stream";
+        aTokens[2] = "Gather";
+        aTokens[3] = "FlushThreshold";
+        aTokens[4] = "Force";
+        aTokens[5] = "End";
+        aTokens[6] = "Never";
+    }
+}
+
+enum WriterGrammarWords {
+    MODE,
+    STREAM,
+    GATHER,
+    FLUSH_THRESHOLD,
+    FORCE,
+    END,
+    NEVER
 }